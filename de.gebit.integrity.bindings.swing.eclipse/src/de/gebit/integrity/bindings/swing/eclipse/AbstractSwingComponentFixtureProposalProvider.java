@@ -39,6 +39,8 @@ public abstract class AbstractSwingComponentFixtureProposalProvider extends Abst
 	public List<CustomProposalDefinition> defineParameterProposals(String aFixtureMethodName, String aParameterName,
 			Map<String, Object> someParameterValues) {
 		if (COMPONENT_PATH_PARAMETER_NAME.equals(aParameterName)) {
+			// The proposal provider API doesn't tell which prefix has been typed (the parameter values hold the values of
+			// the other, already complete parameters), so all components are requested and the editor filters them
 			return requestProposals(getComponentClass());
 		}
 
@@ -9,18 +9,12 @@ package de.gebit.integrity.bindings.swing.eclipse;
 
 import java.awt.Component;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
-import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import de.gebit.integrity.bindings.swing.AbstractSwingComponentHandler;
+import de.gebit.integrity.bindings.swing.authorassist.SwingAuthorAssistClient;
 import de.gebit.integrity.bindings.swing.authorassist.SwingAuthorAssistServer;
-import de.gebit.integrity.bindings.swing.authorassist.SwingAuthorAssistServer.ClassloaderAwareObjectInputStream;
 import de.gebit.integrity.bindings.swing.authorassist.queries.AbstractSwingAuthorAssistQuery;
 import de.gebit.integrity.bindings.swing.authorassist.queries.SwingAuthorAssistComponentQuery;
 import de.gebit.integrity.bindings.swing.authorassist.queries.SwingAuthorAssistComponentQuery.SwingAuthorAssistComponentQueryResult;
@@ -41,14 +35,18 @@ public class AbstractSwingFixtureAssist extends AbstractSwingComponentHandler {
 	protected static final int DEFAULT_AUTHOR_ASSIST_REQUEST_TIMEOUT = 5000;
 
 	/**
-	 * Creates a socket for communication with the {@link SwingAuthorAssistServer}.
+	 * The default number of results requested for component queries filtered by a pattern.
+	 */
+	protected static final int DEFAULT_FILTERED_AUTHOR_ASSIST_RESULT_LIMIT = 50;
+
+	/**
+	 * Returns the client for communication with the {@link SwingAuthorAssistServer}. The client keeps its connection
+	 * open between queries.
 	 * 
-	 * @return the initialized and connected socket
-	 * @throws UnknownHostException
-	 * @throws IOException
+	 * @return the client
 	 */
-	protected Socket createSocket() throws UnknownHostException, IOException {
-		return new Socket(SwingAuthorAssistServer.DEFAULT_HOST, SwingAuthorAssistServer.DEFAULT_PORT);
+	protected SwingAuthorAssistClient getAuthorAssistClient() {
+		return SwingAuthorAssistClient.getInstance(getClassLoader());
 	}
 
 	/**
@@ -60,6 +58,25 @@ public class AbstractSwingFixtureAssist extends AbstractSwingComponentHandler {
 		return DEFAULT_AUTHOR_ASSIST_REQUEST_TIMEOUT;
 	}
 
+	/**
+	 * Returns the maximum number of results requested from the author assist server per query. If a query produces
+	 * more results, only the first ones are transferred.
+	 * 
+	 * @return the limit, or 0 if the number of results shall not be limited
+	 */
+	protected int getAuthorAssistResultLimit() {
+		return 0;
+	}
+
+	/**
+	 * Returns the maximum number of results requested for component queries filtered by a pattern.
+	 * 
+	 * @return the limit, or 0 if the number of results shall not be limited
+	 */
+	protected int getFilteredAuthorAssistResultLimit() {
+		return DEFAULT_FILTERED_AUTHOR_ASSIST_RESULT_LIMIT;
+	}
+
 	/**
 	 * Returns the classloader to use for author assist response deserialization.
 	 * 
@@ -70,79 +87,33 @@ public class AbstractSwingFixtureAssist extends AbstractSwingComponentHandler {
 	}
 
 	/**
-	 * Runs a {@link SwingAuthorAssistRequestRunnable} against an author assist server. The connection is established
-	 * automatically, then the runnables' code is run, and the connection closed.
+	 * Runs a {@link SwingAuthorAssistRequestRunnable} against an author assist server. The query is sent via the shared
+	 * {@link SwingAuthorAssistClient} (which connects automatically if necessary), then the runnables' code is run on
+	 * the result. Since the server streams the results, a query which does not complete within the
+	 * {@link #getAuthorAssistQueryTimeout() timeout} still yields the results which arrived until then.
 	 * 
 	 * @param aQuery
 	 *            the request to submit to the author assist server
 	 * @param aRunnable
 	 *            the runnable to execute for response parsing
-	 * @return a list of proposal definitions returned by the runnable
+	 * @return a list of proposal definitions returned by the runnable, or null in case of errors or timeouts
 	 */
 	protected <T extends Object> List<T> runAuthorAssistRequest(AbstractSwingAuthorAssistQuery aQuery,
 			SwingAuthorAssistRequestRunnable<T> aRunnable) {
-		Timer tempTimeoutTimer = new Timer();
-		Socket tempSocket = null;
-		ObjectOutputStream tempObjectOutputStream = null;
-		ObjectInputStream tempObjectInputStream = null;
-		try {
-			tempSocket = createSocket();
-
-			final Socket tempFinalSocket = tempSocket;
-			final Thread tempAuthorAssistThread = Thread.currentThread();
-			tempTimeoutTimer.schedule(new TimerTask() {
-
-				@Override
-				public void run() {
-					try {
-						tempFinalSocket.close();
-					} catch (IOException exc) {
-						// ignored
-					}
-					tempAuthorAssistThread.interrupt();
-				}
-			}, getAuthorAssistQueryTimeout());
-
-			tempObjectOutputStream = new ObjectOutputStream(tempSocket.getOutputStream());
-			tempObjectOutputStream.writeObject(aQuery);
-			tempObjectOutputStream.flush();
+		if (getAuthorAssistResultLimit() > 0 && aQuery.getLimit() == 0) {
+			aQuery.setLimit(getAuthorAssistResultLimit());
+		}
 
-			tempObjectInputStream = new ClassloaderAwareObjectInputStream(tempSocket.getInputStream(),
-					getClassLoader());
-			Object[] tempResult = (Object[]) tempObjectInputStream.readObject();
+		try {
+			Object[] tempResult = getAuthorAssistClient().query(aQuery, getAuthorAssistQueryTimeout());
+			if (tempResult == null) {
+				// timed out before anything arrived
+				return null;
+			}
 
 			return aRunnable.run(tempResult);
-		} catch (UnknownHostException exc) {
-			exc.printStackTrace();
 		} catch (IOException exc) {
 			exc.printStackTrace();
-		} catch (ClassNotFoundException exc) {
-			exc.printStackTrace();
-		} finally {
-			if (tempTimeoutTimer != null) {
-				tempTimeoutTimer.cancel();
-			}
-			if (tempObjectOutputStream != null) {
-				try {
-					tempObjectOutputStream.close();
-				} catch (IOException exc) {
-					// ignoring close errors
-				}
-			}
-			if (tempObjectInputStream != null) {
-				try {
-					tempObjectInputStream.close();
-				} catch (IOException exc) {
-					// ignoring close errors
-				}
-			}
-			if (tempSocket != null) {
-				try {
-					tempSocket.close();
-				} catch (IOException exc) {
-					// ignoring close errors
-				}
-			}
 		}
 
 		return null;
@@ -157,7 +128,29 @@ public class AbstractSwingFixtureAssist extends AbstractSwingComponentHandler {
 	 * @return the list of proposals (may be empty or null in case of no proposals/errors)
 	 */
 	protected List<CustomProposalDefinition> requestProposals(Class<? extends Component> aComponentClass) {
-		return runAuthorAssistRequest(new SwingAuthorAssistComponentQuery(aComponentClass.getName()),
+		return requestProposals(aComponentClass, null);
+	}
+
+	/**
+	 * Requests proposals from the {@link SwingAuthorAssistServer} for the given component class, whose paths match the
+	 * given pattern. Filtering and ranking is done by the server, which only transfers the best
+	 * {@link #getFilteredAuthorAssistResultLimit()} matches.
+	 * 
+	 * @param aComponentClass
+	 *            the component class to filter for
+	 * @param aFilterPattern
+	 *            the prefix or fuzzy pattern to filter the component paths with (may be null)
+	 * @return the list of proposals (may be empty or null in case of no proposals/errors)
+	 */
+	protected List<CustomProposalDefinition> requestProposals(Class<? extends Component> aComponentClass,
+			String aFilterPattern) {
+		SwingAuthorAssistComponentQuery tempQuery = new SwingAuthorAssistComponentQuery(aComponentClass.getName(),
+				aFilterPattern);
+		if (aFilterPattern != null && aFilterPattern.length() > 0) {
+			tempQuery.setLimit(getFilteredAuthorAssistResultLimit());
+		}
+
+		return runAuthorAssistRequest(tempQuery,
 				new SwingAuthorAssistRequestRunnable<CustomProposalDefinition>() {
 
 					@Override
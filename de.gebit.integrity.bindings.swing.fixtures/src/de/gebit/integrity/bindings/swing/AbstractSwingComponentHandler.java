@@ -9,13 +9,24 @@ package de.gebit.integrity.bindings.swing;
 
 import java.awt.Component;
 import java.awt.Container;
+import java.awt.EventQueue;
 import java.awt.Window;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import javax.swing.JButton;
@@ -24,6 +35,7 @@ import javax.swing.JLayeredPane;
 import javax.swing.JRootPane;
 
 import de.gebit.integrity.bindings.swing.exceptions.AmbiguousComponentPathException;
+import de.gebit.integrity.bindings.swing.exceptions.IntegritySwingBindingsException;
 import de.gebit.integrity.bindings.swing.exceptions.InvalidComponentPathException;
 
 /**
@@ -52,6 +64,46 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 	 */
 	protected static final Pattern UNIQUIFIED_PATH_PATTERN = Pattern.compile("(.+)#(\\d+)");
 
+	/**
+	 * Set this system property to "false" if you want to deactivate the component index (see {@link ComponentIndex}).
+	 * Components are then found by walking the whole component tree of all windows on every lookup. By default the
+	 * index is used.
+	 */
+	public static final String COMPONENT_INDEX_PARAMETER = "de.gebit.integrity.bindings.swing.componentIndex";
+
+	/**
+	 * The maximum number of entries in the {@link #resolutionCache}.
+	 */
+	protected static final int RESOLUTION_CACHE_SIZE = 100;
+
+	/**
+	 * Caches the components found by {@link #findComponentGuarded(String, Class, JFrame)}, keyed by path and class.
+	 * Access must be synchronized on the map.
+	 */
+	private final Map<String, ResolvedComponent> resolutionCache = new LinkedHashMap<String, ResolvedComponent>(16,
+			0.75f, true) {
+
+		/**
+		 * Serialization...
+		 */
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ResolvedComponent> anEldest) {
+			return size() > RESOLUTION_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * The number of lookups served from the {@link #resolutionCache}.
+	 */
+	private final AtomicLong resolutionCacheHits = new AtomicLong();
+
+	/**
+	 * The number of lookups not served from the {@link #resolutionCache}.
+	 */
+	private final AtomicLong resolutionCacheMisses = new AtomicLong();
+
 	/**
 	 * Finds all components matching a given path and/or a given class in all open windows. A frame which is to be
 	 * ignored can be provided.
@@ -66,34 +118,178 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 	 */
 	public <C extends Component> List<C> findComponents(String aComponentPath, Class<C> aComponentClass,
 			JFrame aFrameToIgnore) {
-		List<C> tempComponents = new ArrayList<C>(1);
+		return findComponentsByMatcher(aComponentPath != null ? ComponentPathMatcher.compile(aComponentPath) : null,
+				aComponentClass, aFrameToIgnore);
+	}
 
-		for (Window tempWindow : Window.getWindows()) {
-			if (tempWindow.isVisible()) {
-				if (aFrameToIgnore == null || aFrameToIgnore != tempWindow) {
-					tempComponents.addAll(findComponentsInContainer(tempWindow, aComponentPath, aComponentClass));
+	/**
+	 * Finds all components matching a given compiled path and/or a given class in all open windows. A frame which is to
+	 * be ignored can be provided.
+	 * 
+	 * @param aPathMatcher
+	 *            the compiled path to find, or null if no path filtering shall be performed
+	 * @param aComponentClass
+	 *            the class to filter for, or null if no class filtering is to be done
+	 * @param aFrameToIgnore
+	 *            a frame whose contents need to be ignored
+	 * @return all matching components
+	 */
+	protected <C extends Component> List<C> findComponentsByMatcher(ComponentPathMatcher aPathMatcher,
+			Class<C> aComponentClass, JFrame aFrameToIgnore) {
+		List<C> tempComponents;
+
+		if (isComponentIndexEnabled()) {
+			tempComponents = findComponentsInIndex(aPathMatcher, aComponentClass, aFrameToIgnore);
+		} else {
+			tempComponents = new ArrayList<C>(1);
+			for (Window tempWindow : Window.getWindows()) {
+				if (tempWindow.isVisible()) {
+					if (aFrameToIgnore == null || aFrameToIgnore != tempWindow) {
+						tempComponents.addAll(findComponentsInContainerByMatcher(tempWindow, aPathMatcher,
+								aComponentClass));
+					}
 				}
 			}
 		}
 
-		if (tempComponents.size() == 0) {
-			Matcher tempMatcher = UNIQUIFIED_PATH_PATTERN.matcher(aComponentPath);
-			if (tempMatcher.matches()) {
-				String tempPath = tempMatcher.group(1);
-				Integer tempNumber = Integer.parseInt(tempMatcher.group(2));
+		if (tempComponents.size() == 0 && aPathMatcher != null && aPathMatcher.getBaseMatcher() != null) {
+			tempComponents = findComponentsByMatcher(aPathMatcher.getBaseMatcher(), aComponentClass, aFrameToIgnore);
+			if (tempComponents.size() > aPathMatcher.getIndex()) {
+				return Collections.singletonList(tempComponents.get(aPathMatcher.getIndex()));
+			} else {
+				return tempComponents;
+			}
+		}
 
-				tempComponents = findComponents(tempPath, aComponentClass, aFrameToIgnore);
-				if (tempComponents.size() > tempNumber) {
-					return Collections.singletonList(tempComponents.get(tempNumber));
-				} else {
-					return tempComponents;
+		return tempComponents;
+	}
+
+	/**
+	 * Whether the {@link ComponentIndex} shall be used to find components. Subclasses which change the way component
+	 * names or generic component names are determined (see {@link #getComponentName(Component)} and
+	 * {@link #getGenericComponentName(Class)}) in a way that is not compatible with the index must return false here.
+	 * 
+	 * @return true if the index is to be used, false if the component trees are to be searched directly
+	 */
+	protected boolean isComponentIndexEnabled() {
+		return !"false".equalsIgnoreCase(System.getProperty(COMPONENT_INDEX_PARAMETER));
+	}
+
+	/**
+	 * Finds all components matching a given path and/or a given class in all open windows by using the
+	 * {@link ComponentIndex}. The index provides the candidates matching the last part of the path, and only the
+	 * ancestors of these candidates need to be checked against the rest of the path. The components are returned in
+	 * the same order as by searching all windows via {@link #findComponentsInContainer(Container, String, Class)}, but
+	 * every component is contained at most once: the tree walk may reach the same component via more than one branch
+	 * of the path matching and then reports it twice (which makes a path ambiguous that actually denotes a single
+	 * component).
+	 * 
+	 * @param aPathMatcher
+	 *            the compiled path to find, or null if no path filtering shall be performed
+	 * @param aComponentClass
+	 *            the class to filter for, or null if no class filtering is to be done
+	 * @param aFrameToIgnore
+	 *            a frame whose contents need to be ignored
+	 * @return all matching components
+	 */
+	@SuppressWarnings("unchecked")
+	protected <C extends Component> List<C> findComponentsInIndex(ComponentPathMatcher aPathMatcher,
+			Class<C> aComponentClass, JFrame aFrameToIgnore) {
+		ComponentIndex tempIndex = ComponentIndex.getInstance();
+		Class<C> tempComponentClass = resolveToBase(aComponentClass);
+
+		Map<Window, Integer> tempWindowOrder = new IdentityHashMap<Window, Integer>();
+		Window[] tempWindows = Window.getWindows();
+		for (int i = 0; i < tempWindows.length; i++) {
+			if (tempWindows[i].isVisible() && (aFrameToIgnore == null || aFrameToIgnore != tempWindows[i])) {
+				tempWindowOrder.put(tempWindows[i], i);
+			}
+		}
+
+		List<Component> tempCandidates;
+		if (aPathMatcher == null) {
+			tempCandidates = tempIndex.getComponentsByClass(tempComponentClass);
+		} else {
+			String tempLastPart = aPathMatcher.getLastPart();
+
+			tempCandidates = new ArrayList<Component>();
+			for (Component tempCandidate : tempIndex.getComponentsByName(tempLastPart)) {
+				if (tempLastPart.equals(getComponentName(tempCandidate))) {
+					tempCandidates.add(tempCandidate);
+				}
+			}
+			for (Class<?> tempClass : tempIndex.getIndexedClasses()) {
+				if (tempLastPart.equals(getGenericComponentName((Class<? extends Component>) tempClass))) {
+					for (Component tempCandidate : tempIndex.getComponentsByClass(tempClass)) {
+						if (tempCandidate.getClass() == tempClass && getComponentName(tempCandidate) == null) {
+							tempCandidates.add(tempCandidate);
+						}
+					}
 				}
 			}
+			if (aPathMatcher.getPartCount() == 1) {
+				// Windows themselves can only match single-part paths
+				tempCandidates.addAll(tempWindowOrder.keySet());
+			}
 		}
 
+		List<IndexedComponentMatch> tempMatches = new ArrayList<IndexedComponentMatch>();
+		for (Component tempCandidate : tempCandidates) {
+			if (tempComponentClass != null && !tempComponentClass.isAssignableFrom(tempCandidate.getClass())) {
+				continue;
+			}
+
+			Component[] tempChain = getAncestorChain(tempCandidate);
+			Integer tempWindowPosition = tempChain != null ? tempWindowOrder.get(tempChain[0]) : null;
+			if (tempWindowPosition == null) {
+				// not inside a visible window, or inside the window to be ignored
+				continue;
+			}
+
+			if (aPathMatcher == null ? tempChain.length > 1 : aPathMatcher.matches(tempChain, this)) {
+				tempMatches.add(new IndexedComponentMatch(tempCandidate, tempWindowPosition, tempChain));
+			}
+		}
+
+		if (tempMatches.size() > 1) {
+			Collections.sort(tempMatches);
+		}
+
+		List<C> tempComponents = new ArrayList<C>(tempMatches.size());
+		for (IndexedComponentMatch tempMatch : tempMatches) {
+			tempComponents.add((C) tempMatch.component);
+		}
 		return tempComponents;
 	}
 
+	/**
+	 * Determines the chain of ancestors of the given component, starting with the window in which the component is
+	 * located and ending with the component itself.
+	 * 
+	 * @param aComponent
+	 *            the component
+	 * @return the chain, or null if the component is not located inside a window
+	 */
+	protected Component[] getAncestorChain(Component aComponent) {
+		int tempDepth = 1;
+		Component tempComponentInFocus = aComponent;
+		while (!(tempComponentInFocus instanceof Window)) {
+			tempComponentInFocus = tempComponentInFocus.getParent();
+			if (tempComponentInFocus == null) {
+				return null;
+			}
+			tempDepth++;
+		}
+
+		Component[] tempChain = new Component[tempDepth];
+		tempComponentInFocus = aComponent;
+		for (int i = tempDepth - 1; i >= 0; i--) {
+			tempChain[i] = tempComponentInFocus;
+			tempComponentInFocus = tempComponentInFocus.getParent();
+		}
+		return tempChain;
+	}
+
 	/**
 	 * Finds all components in a given container which match a given path and/or a provided class.
 	 * 
@@ -107,22 +303,38 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 	 */
 	protected <C extends Component> List<C> findComponentsInContainer(Container aContainer, String aComponentPath,
 			Class<C> aComponentClass) {
+		return findComponentsInContainerByMatcher(aContainer,
+				aComponentPath != null ? ComponentPathMatcher.compile(aComponentPath) : null, aComponentClass);
+	}
+
+	/**
+	 * Finds all components in a given container which match a given compiled path and/or a provided class.
+	 * 
+	 * @param aContainer
+	 *            the container in which to search
+	 * @param aPathMatcher
+	 *            the compiled path to match, or null if no path filtering shall be performed
+	 * @param aComponentClass
+	 *            the class to match, or null if no class filtering shall be performed
+	 * @return all matching components
+	 */
+	protected <C extends Component> List<C> findComponentsInContainerByMatcher(Container aContainer,
+			ComponentPathMatcher aPathMatcher, Class<C> aComponentClass) {
 		List<C> tempComponents = new ArrayList<C>(1);
 
-		String[] tempPathParts = aComponentPath != null ? splitPath(aComponentPath) : null;
-		recursiveFindComponentsInContainer(aContainer, tempPathParts, -1, resolveToBase(aComponentClass),
+		recursiveFindComponentsInContainer(aContainer, aPathMatcher, -1, resolveToBase(aComponentClass),
 				tempComponents);
 
 		return tempComponents;
 	}
 
 	@SuppressWarnings("unchecked")
-	private <C extends Component> void recursiveFindComponentsInContainer(Container aContainer, String[] somePathParts,
-			int aPathPosition, Class<C> aComponentClass, List<C> aCollection) {
-		if (somePathParts == null) {
+	private <C extends Component> void recursiveFindComponentsInContainer(Container aContainer,
+			ComponentPathMatcher aPathMatcher, int aPathPosition, Class<C> aComponentClass, List<C> aCollection) {
+		if (aPathMatcher == null) {
 			for (Component tempComponent : aContainer.getComponents()) {
 				if (tempComponent instanceof Container) {
-					recursiveFindComponentsInContainer((Container) tempComponent, somePathParts, 0, aComponentClass,
+					recursiveFindComponentsInContainer((Container) tempComponent, aPathMatcher, 0, aComponentClass,
 							aCollection);
 				}
 				if (aComponentClass == null || (aComponentClass.isAssignableFrom(tempComponent.getClass()))) {
@@ -130,11 +342,11 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 				}
 			}
 		} else {
-			if (aPathPosition >= somePathParts.length) {
+			if (aPathPosition >= aPathMatcher.getPartCount()) {
 				return;
-			} else if (aPathPosition == -1 && somePathParts.length > 0) {
-				boolean tempIsLastPart = somePathParts.length == 1;
-				String tempNameToFind = somePathParts[0];
+			} else if (aPathPosition == -1 && aPathMatcher.getPartCount() > 0) {
+				boolean tempIsLastPart = aPathMatcher.getPartCount() == 1;
+				String tempNameToFind = aPathMatcher.getPart(0);
 				String tempContainerName = getComponentName(aContainer);
 				if (tempContainerName != null && tempNameToFind.equals(tempContainerName)) {
 					if (tempIsLastPart) {
@@ -142,14 +354,14 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 							aCollection.add((C) aContainer);
 						}
 					} else {
-						recursiveFindComponentsInContainer(aContainer, somePathParts, 1, aComponentClass, aCollection);
+						recursiveFindComponentsInContainer(aContainer, aPathMatcher, 1, aComponentClass, aCollection);
 					}
 				} else {
-					recursiveFindComponentsInContainer(aContainer, somePathParts, 0, aComponentClass, aCollection);
+					recursiveFindComponentsInContainer(aContainer, aPathMatcher, 0, aComponentClass, aCollection);
 				}
 			} else {
-				boolean tempIsLastPart = aPathPosition + 1 == somePathParts.length;
-				String tempNameToFind = somePathParts[aPathPosition];
+				boolean tempIsLastPart = aPathPosition + 1 == aPathMatcher.getPartCount();
+				String tempNameToFind = aPathMatcher.getPart(aPathPosition);
 				for (Component tempComponent : aContainer.getComponents()) {
 					String tempComponentName = getComponentName(tempComponent);
 
@@ -157,7 +369,7 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 						// Unnamed containers are ignored; those are allowed
 						// gaps in the path
 						if (tempComponent instanceof Container) {
-							recursiveFindComponentsInContainer((Container) tempComponent, somePathParts, aPathPosition,
+							recursiveFindComponentsInContainer((Container) tempComponent, aPathMatcher, aPathPosition,
 									aComponentClass, aCollection);
 						}
 						// ...but this could also be a generically named
@@ -171,7 +383,7 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 								}
 							} else {
 								if (tempComponent instanceof Container) {
-									recursiveFindComponentsInContainer((Container) tempComponent, somePathParts,
+									recursiveFindComponentsInContainer((Container) tempComponent, aPathMatcher,
 											aPathPosition + 1, aComponentClass, aCollection);
 								}
 							}
@@ -185,13 +397,13 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 								}
 							} else {
 								if (tempComponent instanceof Container) {
-									recursiveFindComponentsInContainer((Container) tempComponent, somePathParts,
+									recursiveFindComponentsInContainer((Container) tempComponent, aPathMatcher,
 											aPathPosition + 1, aComponentClass, aCollection);
 								}
 							}
 						} else {
 							if (tempComponent instanceof Container) {
-								recursiveFindComponentsInContainer((Container) tempComponent, somePathParts, 0,
+								recursiveFindComponentsInContainer((Container) tempComponent, aPathMatcher, 0,
 										aComponentClass, aCollection);
 							}
 						}
@@ -219,7 +431,109 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 	 */
 	public <C extends Component> C findComponentGuarded(String aComponentPath, Class<C> aComponentClass,
 			JFrame aFrameToIgnore) throws AmbiguousComponentPathException, InvalidComponentPathException {
-		return filterComponentList(findComponents(aComponentPath, aComponentClass, aFrameToIgnore), aComponentPath);
+		beforeComponentLookup();
+
+		// The cache relies on the index revision to notice changes, so it can only be used together with the index
+		String tempCacheKey = null;
+		long tempRevision = 0;
+		if (aComponentPath != null && isResolutionCacheEnabled() && isComponentIndexEnabled()) {
+			tempCacheKey = aComponentPath + "|" + (aComponentClass != null ? aComponentClass.getName() : "") + "|"
+					+ (aFrameToIgnore != null ? System.identityHashCode(aFrameToIgnore) : "");
+			C tempComponent = getCachedComponent(tempCacheKey, aComponentClass, aFrameToIgnore);
+			if (tempComponent != null) {
+				resolutionCacheHits.incrementAndGet();
+				return tempComponent;
+			}
+			resolutionCacheMisses.incrementAndGet();
+			tempRevision = ComponentIndex.getInstance().getRevision();
+		}
+
+		C tempComponent = filterComponentList(findComponents(aComponentPath, aComponentClass, aFrameToIgnore),
+				aComponentPath);
+
+		if (tempCacheKey != null) {
+			Component[] tempChain = getAncestorChain(tempComponent);
+			if (tempChain != null) {
+				synchronized (resolutionCache) {
+					resolutionCache.put(tempCacheKey, new ResolvedComponent(tempChain, aFrameToIgnore, tempRevision));
+				}
+			}
+		}
+
+		return tempComponent;
+	}
+
+	/**
+	 * Called before {@link #findComponentGuarded(String, Class, JFrame)} looks up a component. Does nothing by default.
+	 */
+	protected void beforeComponentLookup() {
+		// nothing to do by default
+	}
+
+	/**
+	 * Whether components found by {@link #findComponentGuarded(String, Class, JFrame)} shall be cached in order to
+	 * speed up repeated lookups of the same path. The cache is only used if the component index is enabled as well
+	 * (see {@link #isComponentIndexEnabled()}).
+	 * 
+	 * @return true if the cache is to be used
+	 */
+	protected boolean isResolutionCacheEnabled() {
+		return true;
+	}
+
+	/**
+	 * Returns the component which was found for the given cache key before, if it is still valid. A cached component is
+	 * considered valid if it is still displayable, its ancestor chain is unchanged, its window is visible, it was found
+	 * while ignoring the same frame, and no components have been added, removed or renamed and no windows have been
+	 * shown or hidden anywhere since it was found (the latter ensures that the path is still unique and still refers to
+	 * this component).
+	 * 
+	 * @param aCacheKey
+	 *            the cache key
+	 * @param aComponentClass
+	 *            the class that the component must have
+	 * @param aFrameToIgnore
+	 *            a frame whose contents need to be ignored
+	 * @return the component or null if none is cached or the cached one is not valid anymore
+	 */
+	@SuppressWarnings("unchecked")
+	private <C extends Component> C getCachedComponent(String aCacheKey, Class<C> aComponentClass,
+			JFrame aFrameToIgnore) {
+		ResolvedComponent tempResolved;
+		synchronized (resolutionCache) {
+			tempResolved = resolutionCache.get(aCacheKey);
+		}
+		if (tempResolved == null) {
+			return null;
+		}
+
+		Component tempComponent = tempResolved.getValidComponent(aFrameToIgnore);
+		if (tempComponent == null || (aComponentClass != null && !aComponentClass.isInstance(tempComponent))) {
+			synchronized (resolutionCache) {
+				resolutionCache.remove(aCacheKey);
+			}
+			return null;
+		}
+
+		return (C) tempComponent;
+	}
+
+	/**
+	 * Returns the number of lookups that were served from the resolution cache.
+	 * 
+	 * @return the number of cache hits
+	 */
+	public long getResolutionCacheHits() {
+		return resolutionCacheHits.get();
+	}
+
+	/**
+	 * Returns the number of lookups that could not be served from the resolution cache and required a full search.
+	 * 
+	 * @return the number of cache misses
+	 */
+	public long getResolutionCacheMisses() {
+		return resolutionCacheMisses.get();
 	}
 
 	/**
@@ -274,7 +588,18 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 	 * @return the generic name
 	 */
 	protected String getGenericComponentName(Component aComponent) {
-		return resolveToBase(aComponent.getClass()).getSimpleName();
+		return getGenericComponentName(aComponent.getClass());
+	}
+
+	/**
+	 * Creates a generic name for components of the given class.
+	 * 
+	 * @param aComponentClass
+	 *            the component class
+	 * @return the generic name
+	 */
+	protected String getGenericComponentName(Class<? extends Component> aComponentClass) {
+		return resolveToBase(aComponentClass).getSimpleName();
 	}
 
 	/**
@@ -406,6 +731,209 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 		}
 	}
 
+	/**
+	 * Returns all visible windows.
+	 * 
+	 * @param aFrameToIgnore
+	 *            a frame which is not to be included, or null
+	 * @return the visible windows
+	 */
+	public List<Window> getVisibleWindows(JFrame aFrameToIgnore) {
+		List<Window> tempWindows = new ArrayList<Window>();
+		for (Window tempWindow : Window.getWindows()) {
+			if (tempWindow.isVisible() && (aFrameToIgnore == null || aFrameToIgnore != tempWindow)) {
+				tempWindows.add(tempWindow);
+			}
+		}
+		return tempWindows;
+	}
+
+	/**
+	 * Finds all components of the given class in the given windows and calculates the full, uniquified and shortest
+	 * paths for each of them. The component trees are traversed only once, and all the work is done in a single run on
+	 * the event dispatching thread. Uniqueness of the paths is determined with regard to the given windows only.
+	 * 
+	 * @param someWindows
+	 *            the windows to search in
+	 * @param aComponentClass
+	 *            the class to filter for, or null if no class filtering is to be done
+	 * @return a map of all found components to their paths, in the order in which
+	 *         {@link #findComponents(String, Class, JFrame)} would find the components
+	 */
+	public <C extends Component> Map<C, PathInfo> createComponentPathInfos(final List<? extends Window> someWindows,
+			final Class<C> aComponentClass) {
+		return callOnEventQueue(new Callable<Map<C, PathInfo>>() {
+
+			@Override
+			public Map<C, PathInfo> call() {
+				ComponentPathSuffixTree tempTree = new ComponentPathSuffixTree(AbstractSwingComponentHandler.this,
+						someWindows);
+
+				Map<C, PathInfo> tempResult = new LinkedHashMap<C, PathInfo>();
+				for (C tempComponent : tempTree.getComponents(aComponentClass)) {
+					tempResult.put(tempComponent, createPathInfo(tempTree, tempComponent));
+				}
+				return tempResult;
+			}
+		});
+	}
+
+	/**
+	 * Calculates the full, uniquified and shortest paths for all the given components. The component trees of all
+	 * visible windows are traversed only once, and all the work is done in a single run on the event dispatching
+	 * thread.
+	 * 
+	 * @param someComponents
+	 *            the components
+	 * @return a map of the components to their paths
+	 */
+	public Map<Component, PathInfo> createComponentPathInfos(final List<? extends Component> someComponents) {
+		return callOnEventQueue(createComponentPathInfosCallable(someComponents));
+	}
+
+	/**
+	 * Calculates the full, uniquified and shortest paths for all the given components, like
+	 * {@link #createComponentPathInfos(List)}, but waits only for a limited time for the event dispatching thread.
+	 * 
+	 * @param someComponents
+	 *            the components
+	 * @param aTimeout
+	 *            the maximum time to wait in milliseconds
+	 * @return a map of the components to their paths, or null if the event dispatching thread didn't run the
+	 *         calculation in time
+	 */
+	public Map<Component, PathInfo> createComponentPathInfos(final List<? extends Component> someComponents,
+			long aTimeout) {
+		return callOnEventQueue(createComponentPathInfosCallable(someComponents), aTimeout);
+	}
+
+	/**
+	 * Creates the callable which does the work for {@link #createComponentPathInfos(List)}.
+	 * 
+	 * @param someComponents
+	 *            the components
+	 * @return the callable
+	 */
+	private Callable<Map<Component, PathInfo>> createComponentPathInfosCallable(
+			final List<? extends Component> someComponents) {
+		return new Callable<Map<Component, PathInfo>>() {
+
+			@Override
+			public Map<Component, PathInfo> call() {
+				ComponentPathSuffixTree tempTree = ComponentPathSuffixTree
+						.createForVisibleWindows(AbstractSwingComponentHandler.this);
+
+				Map<Component, PathInfo> tempResult = new LinkedHashMap<Component, PathInfo>();
+				for (Component tempComponent : someComponents) {
+					tempResult.put(tempComponent, createPathInfo(tempTree, tempComponent));
+				}
+				return tempResult;
+			}
+		};
+	}
+
+	/**
+	 * Creates the path information for a single component.
+	 * 
+	 * @param aTree
+	 *            the suffix tree to use
+	 * @param aComponent
+	 *            the component
+	 * @return the path information
+	 */
+	private PathInfo createPathInfo(ComponentPathSuffixTree aTree, Component aComponent) {
+		String tempPath = aTree.contains(aComponent) ? aTree.getComponentPath(aComponent)
+				: createComponentPath(aComponent);
+		return new PathInfo(tempPath, aTree.getUniquifiedComponentPath(aComponent),
+				aTree.getShortestComponentPath(aComponent));
+	}
+
+	/**
+	 * Runs the given callable on the event dispatching thread, waits for it to finish and returns its result. If the
+	 * current thread is the event dispatching thread, the callable is run directly.
+	 * 
+	 * @param aCallable
+	 *            the callable to run
+	 * @return the result of the callable
+	 * @throws IntegritySwingBindingsException
+	 *             if the callable threw an exception or the current thread was interrupted while waiting
+	 */
+	protected <R> R callOnEventQueue(final Callable<R> aCallable) {
+		if (EventQueue.isDispatchThread()) {
+			try {
+				return aCallable.call();
+			} catch (RuntimeException exc) {
+				throw exc;
+			} catch (Exception exc) {
+				throw new IntegritySwingBindingsException(exc);
+			}
+		}
+
+		final List<R> tempResult = new ArrayList<R>(1);
+		try {
+			EventQueue.invokeAndWait(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						tempResult.add(aCallable.call());
+					} catch (RuntimeException exc) {
+						throw exc;
+					} catch (Exception exc) {
+						throw new IntegritySwingBindingsException(exc);
+					}
+				}
+			});
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			throw new IntegritySwingBindingsException("Interrupted while waiting for the event queue", exc);
+		} catch (InvocationTargetException exc) {
+			if (exc.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) exc.getCause();
+			}
+			throw new IntegritySwingBindingsException(exc.getCause());
+		}
+
+		return tempResult.get(0);
+	}
+
+	/**
+	 * Runs the given callable on the event dispatching thread and waits at most the given time for it to finish. If the
+	 * current thread is the event dispatching thread, the callable is run directly. If the timeout expires, the
+	 * callable is cancelled (it won't be run anymore if it hasn't started yet).
+	 * 
+	 * @param aCallable
+	 *            the callable to run
+	 * @param aTimeout
+	 *            the maximum time to wait in milliseconds
+	 * @return the result of the callable, or null if the timeout expired
+	 * @throws IntegritySwingBindingsException
+	 *             if the callable threw an exception or the current thread was interrupted while waiting
+	 */
+	protected <R> R callOnEventQueue(Callable<R> aCallable, long aTimeout) {
+		if (EventQueue.isDispatchThread()) {
+			return callOnEventQueue(aCallable);
+		}
+
+		FutureTask<R> tempTask = new FutureTask<R>(aCallable);
+		EventQueue.invokeLater(tempTask);
+		try {
+			return tempTask.get(aTimeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException exc) {
+			tempTask.cancel(false);
+			return null;
+		} catch (InterruptedException exc) {
+			tempTask.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new IntegritySwingBindingsException("Interrupted while waiting for the event queue", exc);
+		} catch (ExecutionException exc) {
+			if (exc.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) exc.getCause();
+			}
+			throw new IntegritySwingBindingsException(exc.getCause());
+		}
+	}
+
 	private String serializeNameList(List<String> aList) {
 		StringBuilder tempBuilder = new StringBuilder();
 
@@ -443,10 +971,6 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 		}
 	}
 
-	private String[] splitPath(String aPath) {
-		return aPath.split("\\.");
-	}
-
 	/**
 	 * Resolves the provided class to a "base class" onto which content assist shall be provided. The level of resolving
 	 * may vary.
@@ -515,4 +1039,204 @@ public abstract class AbstractSwingComponentHandler implements IComponentHandler
 			aStringBuilder.append(", ");
 		}
 	}
+
+	/**
+	 * A component found via the {@link ComponentIndex}, together with its position in the component tree. Sorting these
+	 * matches yields the same order in which the components are found when searching the component trees directly:
+	 * windows in the order of {@link Window#getWindows()}, siblings in container order, and children before their
+	 * parents.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	private static class IndexedComponentMatch implements Comparable<IndexedComponentMatch> {
+
+		/**
+		 * The component.
+		 */
+		private Component component;
+
+		/**
+		 * The position of the components' window in {@link Window#getWindows()}.
+		 */
+		private int windowPosition;
+
+		/**
+		 * The position of the component and its ancestors in their respective parent containers, starting below the
+		 * window.
+		 */
+		private int[] treePosition;
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param aComponent
+		 *            the component
+		 * @param aWindowPosition
+		 *            the position of the window
+		 * @param aChain
+		 *            the ancestor chain of the component
+		 */
+		IndexedComponentMatch(Component aComponent, int aWindowPosition, Component[] aChain) {
+			component = aComponent;
+			windowPosition = aWindowPosition;
+			treePosition = new int[aChain.length - 1];
+			for (int i = 1; i < aChain.length; i++) {
+				treePosition[i - 1] = ((Container) aChain[i - 1]).getComponentZOrder(aChain[i]);
+			}
+		}
+
+		@Override
+		public int compareTo(IndexedComponentMatch anOther) {
+			if (windowPosition != anOther.windowPosition) {
+				return windowPosition < anOther.windowPosition ? -1 : 1;
+			}
+
+			int tempCommonLength = Math.min(treePosition.length, anOther.treePosition.length);
+			for (int i = 0; i < tempCommonLength; i++) {
+				if (treePosition[i] != anOther.treePosition[i]) {
+					return treePosition[i] < anOther.treePosition[i] ? -1 : 1;
+				}
+			}
+
+			// One is an ancestor of the other (or they're identical): the descendant comes first
+			return anOther.treePosition.length - treePosition.length;
+		}
+	}
+
+	/**
+	 * An entry in the {@link AbstractSwingComponentHandler#resolutionCache}. The component as well as its ancestors are
+	 * only referenced weakly.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	private static class ResolvedComponent {
+
+		/**
+		 * The ancestor chain of the component, starting with the window and ending with the component itself.
+		 */
+		private List<WeakReference<Component>> chain;
+
+		/**
+		 * The frame which was ignored when the component was found (may be null).
+		 */
+		private WeakReference<JFrame> frameToIgnore;
+
+		/**
+		 * The {@link ComponentIndex} revision at the time the component was found.
+		 */
+		private long revision;
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param aChain
+		 *            the ancestor chain
+		 * @param aFrameToIgnore
+		 *            the frame which was ignored during the search
+		 * @param aRevision
+		 *            the index revision
+		 */
+		ResolvedComponent(Component[] aChain, JFrame aFrameToIgnore, long aRevision) {
+			chain = new ArrayList<WeakReference<Component>>(aChain.length);
+			for (Component tempComponent : aChain) {
+				chain.add(new WeakReference<Component>(tempComponent));
+			}
+			frameToIgnore = aFrameToIgnore != null ? new WeakReference<JFrame>(aFrameToIgnore) : null;
+			revision = aRevision;
+		}
+
+		/**
+		 * Returns the component if it is still valid.
+		 * 
+		 * @param aFrameToIgnore
+		 *            a frame whose contents need to be ignored
+		 * @return the component, or null if the entry is not valid anymore
+		 */
+		public Component getValidComponent(JFrame aFrameToIgnore) {
+			if (revision != ComponentIndex.getInstance().getRevision()) {
+				return null;
+			}
+
+			if ((frameToIgnore != null ? frameToIgnore.get() : null) != aFrameToIgnore) {
+				return null;
+			}
+
+			Component tempComponent = chain.get(chain.size() - 1).get();
+			if (tempComponent == null || !tempComponent.isDisplayable()) {
+				return null;
+			}
+
+			Component tempComponentInFocus = tempComponent;
+			for (int i = chain.size() - 1; i > 0; i--) {
+				tempComponentInFocus = tempComponentInFocus.getParent();
+				if (tempComponentInFocus == null || tempComponentInFocus != chain.get(i - 1).get()) {
+					return null;
+				}
+			}
+
+			if (!(tempComponentInFocus instanceof Window) || !tempComponentInFocus.isVisible()
+					|| tempComponentInFocus == aFrameToIgnore) {
+				return null;
+			}
+
+			return tempComponent;
+		}
+	}
+
+	/**
+	 * The different paths to a single component.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	public static class PathInfo {
+
+		/**
+		 * The full path (not necessarily unique).
+		 */
+		private final String path;
+
+		/**
+		 * The full path, enriched with a number if necessary to make it unique.
+		 */
+		private final String uniquifiedPath;
+
+		/**
+		 * The shortest unique path, or null if there is none.
+		 */
+		private final String shortestPath;
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param aPath
+		 *            the full path
+		 * @param aUniquifiedPath
+		 *            the uniquified full path
+		 * @param aShortestPath
+		 *            the shortest unique path
+		 */
+		public PathInfo(String aPath, String aUniquifiedPath, String aShortestPath) {
+			path = aPath;
+			uniquifiedPath = aUniquifiedPath;
+			shortestPath = aShortestPath;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public String getUniquifiedPath() {
+			return uniquifiedPath;
+		}
+
+		public String getShortestPath() {
+			return shortestPath;
+		}
+	}
 }
@@ -8,18 +8,36 @@
 package de.gebit.integrity.bindings.swing;
 
 import java.awt.AWTException;
+import java.awt.Color;
 import java.awt.Container;
 import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
 import java.awt.KeyboardFocusManager;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.Robot;
 import java.awt.Window;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.swing.JComponent;
 import javax.swing.JDialog;
@@ -28,6 +46,7 @@ import de.gebit.integrity.bindings.swing.exceptions.AmbiguousComponentPathExcept
 import de.gebit.integrity.bindings.swing.exceptions.EventQueueTimeoutException;
 import de.gebit.integrity.bindings.swing.exceptions.InvalidActionException;
 import de.gebit.integrity.bindings.swing.exceptions.InvalidComponentPathException;
+import de.gebit.integrity.bindings.swing.util.ImageEncoderPool;
 import de.gebit.integrity.fixtures.ExtendedResultFixture;
 import de.gebit.integrity.fixtures.FixtureMethod;
 import de.gebit.integrity.fixtures.FixtureParameter;
@@ -123,6 +142,77 @@ public abstract class AbstractSwingFixture<T extends JComponent> extends Abstrac
 	// Utility functionality for all fixtures
 	//
 
+	@Override
+	protected void beforeComponentLookup() {
+		attributeEventQueueMonitorSamples();
+	}
+
+	/**
+	 * The names of all fixture methods per fixture class, used to find the currently executing fixture method for the
+	 * {@link EventQueueMonitor}.
+	 */
+	private static final Map<Class<?>, Set<String>> FIXTURE_METHOD_NAMES = new ConcurrentHashMap<Class<?>, Set<String>>();
+
+	/**
+	 * The fixture method which is currently being executed, as determined for the {@link EventQueueMonitor}. Reset
+	 * after every fixture call in {@link #provideExtendedResults(FixtureInvocationResult)}.
+	 */
+	private String currentFixtureMethod;
+
+	/**
+	 * Attributes all {@link EventQueueMonitor} samples taken from now on to the currently executing fixture method. The
+	 * fixture method is determined once per call by looking for a method annotated with {@link FixtureMethod} on the
+	 * stack. Does nothing if the monitor is disabled.
+	 */
+	protected void attributeEventQueueMonitorSamples() {
+		if (currentFixtureMethod != null) {
+			return;
+		}
+
+		EventQueueMonitor tempMonitor = EventQueueMonitor.getInstance();
+		if (tempMonitor == null) {
+			return;
+		}
+
+		Set<String> tempMethodNames = FIXTURE_METHOD_NAMES.get(getClass());
+		if (tempMethodNames == null) {
+			tempMethodNames = new HashSet<String>();
+			for (Method tempMethod : getClass().getMethods()) {
+				if (tempMethod.isAnnotationPresent(FixtureMethod.class)) {
+					tempMethodNames.add(tempMethod.getName());
+				}
+			}
+			FIXTURE_METHOD_NAMES.put(getClass(), tempMethodNames);
+		}
+
+		StackTraceElement[] tempStackTrace = Thread.currentThread().getStackTrace();
+		// The outermost matching frame is the one called by Integrity
+		for (int i = tempStackTrace.length - 1; i >= 0; i--) {
+			if (tempMethodNames.contains(tempStackTrace[i].getMethodName())
+					&& isFixtureClassName(tempStackTrace[i].getClassName())) {
+				currentFixtureMethod = getClass().getSimpleName() + "#" + tempStackTrace[i].getMethodName();
+				tempMonitor.setCurrentFixtureMethod(currentFixtureMethod);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the given class name is the name of this fixture class or one of its superclasses.
+	 * 
+	 * @param aClassName
+	 *            the class name
+	 * @return true if it is
+	 */
+	private boolean isFixtureClassName(String aClassName) {
+		for (Class<?> tempClass = getClass(); tempClass != null; tempClass = tempClass.getSuperclass()) {
+			if (tempClass.getName().equals(aClassName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Stores the component which was last found by {@link #findComponentGuarded(String)}. Intended to be used by the
 	 * screenshot functionality to determine the window to be captured.
@@ -161,12 +251,20 @@ public abstract class AbstractSwingFixture<T extends JComponent> extends Abstrac
 	 */
 	protected static final int DEFAULT_EVENT_QUEUE_WAIT_COUNT = 1;
 
+	/**
+	 * Set this system property to "false" if you want to deactivate waiting for the event queue to become idle after
+	 * running actions on it. A fixed number of round trips through the event queue is used instead. By default, idle
+	 * detection is active.
+	 */
+	public static final String EVENT_QUEUE_IDLE_DETECTION_PARAMETER = "de.gebit.integrity.bindings.swing.eventQueueIdleDetection";
+
 	/**
 	 * Run the provided {@link Runnable} on the event queue.
 	 * 
 	 * @param aRunnable
 	 */
 	protected void runOnEventQueue(Runnable aRunnable) {
+		attributeEventQueueMonitorSamples();
 		EventQueue.invokeLater(aRunnable);
 	}
 
@@ -179,13 +277,68 @@ public abstract class AbstractSwingFixture<T extends JComponent> extends Abstrac
 	 */
 	protected void runOnEventQueueAndWait(Runnable aRunnable) throws EventQueueTimeoutException {
 		runOnEventQueue(aRunnable);
-		waitForEventQueue();
-		// Now the runnable has been processed, but depending on what the
-		// runnable did, further events might have been
-		// pushed onto the queue (as a result of changing a controls' value, for
-		// example). We want to wait for those
-		// as well, so we put another wait behind:
-		waitForEventQueue();
+		if (isEventQueueIdleDetectionEnabled()) {
+			// This waits for the runnable as well as for all events which are
+			// pushed onto the queue as a result of what the runnable did
+			waitForEventQueueIdle();
+		} else {
+			waitForEventQueue();
+			// Now the runnable has been processed, but depending on what the
+			// runnable did, further events might have been
+			// pushed onto the queue (as a result of changing a controls' value, for
+			// example). We want to wait for those
+			// as well, so we put another wait behind:
+			waitForEventQueue();
+		}
+
+		recordUIFrame();
+	}
+
+	/**
+	 * Records the current state of the window under test with the {@link UIFrameRecorder}, if it is enabled.
+	 */
+	protected void recordUIFrame() {
+		final UIFrameRecorder tempRecorder = UIFrameRecorder.getInstance();
+		if (tempRecorder == null) {
+			return;
+		}
+
+		final Window tempWindow = determineScreenshotWindow();
+		if (tempWindow != null) {
+			final String tempDescription = currentFixtureMethod != null ? currentFixtureMethod : getClass()
+					.getSimpleName();
+			EventQueue.invokeLater(new Runnable() {
+
+				@Override
+				public void run() {
+					tempRecorder.recordFrame(tempWindow, tempDescription);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Wait for the event queue to become idle, that is, to process all pending messages including those which are added
+	 * while waiting.
+	 * 
+	 * @throws EventQueueTimeoutException
+	 */
+	protected void waitForEventQueueIdle() throws EventQueueTimeoutException {
+		if (!EventQueueSynchronizer.getInstance().waitForIdle(getEventQueueWaitTimeout())) {
+			throw new EventQueueTimeoutException("Timed out while waiting for event queue to become idle ("
+					+ getEventQueueWaitTimeout() + " msecs)");
+		}
+	}
+
+	/**
+	 * Whether {@link #runOnEventQueueAndWait(Runnable)} shall wait for the event queue to become idle (see
+	 * {@link EventQueueSynchronizer#waitForIdle(long)}) instead of waiting for a fixed number of round trips through the
+	 * queue.
+	 * 
+	 * @return true if idle detection is to be used
+	 */
+	protected boolean isEventQueueIdleDetectionEnabled() {
+		return !"false".equalsIgnoreCase(System.getProperty(EVENT_QUEUE_IDLE_DETECTION_PARAMETER));
 	}
 
 	/**
@@ -194,7 +347,7 @@ public abstract class AbstractSwingFixture<T extends JComponent> extends Abstrac
 	 * @throws EventQueueTimeoutException
 	 */
 	protected void waitForEventQueue() throws EventQueueTimeoutException {
-		if (!new EventQueueSynchronizer().waitForEventQueueMultipleTimes(getEventQueueWaitTimeout(),
+		if (!EventQueueSynchronizer.getInstance().waitForEventQueueMultipleTimes(getEventQueueWaitTimeout(),
 				getEventQueueWaitCount())) {
 			throw new EventQueueTimeoutException("Timed out while waiting for event queue ("
 					+ getEventQueueWaitTimeout() + " msecs)");
@@ -207,7 +360,8 @@ public abstract class AbstractSwingFixture<T extends JComponent> extends Abstrac
 	 * @throws EventQueueTimeoutException
 	 */
 	protected void waitForEventQueueMultipleTimes(int aNumberOfTimes) throws EventQueueTimeoutException {
-		if (!new EventQueueSynchronizer().waitForEventQueueMultipleTimes(getEventQueueWaitTimeout(), aNumberOfTimes)) {
+		if (!EventQueueSynchronizer.getInstance().waitForEventQueueMultipleTimes(getEventQueueWaitTimeout(),
+				aNumberOfTimes)) {
 			throw new EventQueueTimeoutException("Timed out while waiting for event queue ("
 					+ getEventQueueWaitTimeout() + " msecs)");
 		}
@@ -386,38 +540,429 @@ public abstract class AbstractSwingFixture<T extends JComponent> extends Abstrac
 	 */
 	public static final String SCREENSHOTS_ON_FAILURE_PARAMETER = "de.gebit.integrity.bindings.swing.screenshotOnFailure";
 
+	/**
+	 * This system property selects how failure screenshots are taken: "robot" (the default) grabs the screen contents
+	 * using {@link Robot}, which requires the window to be visible and unobscured. "offscreen" lets the window paint
+	 * itself into an offscreen buffer instead, which is faster on virtual displays and works regardless of overlapping
+	 * windows, but shows only the window itself (no other windows or popups on top of it).
+	 */
+	public static final String SCREENSHOT_STRATEGY_PARAMETER = "de.gebit.integrity.bindings.swing.screenshotStrategy";
+
+	/**
+	 * Screenshot strategy: use {@link Robot}.
+	 */
+	public static final String SCREENSHOT_STRATEGY_ROBOT = "robot";
+
+	/**
+	 * Screenshot strategy: paint offscreen.
+	 */
+	public static final String SCREENSHOT_STRATEGY_OFFSCREEN = "offscreen";
+
+	/**
+	 * This system property selects the area captured by failure screenshots: "window" (the window containing the last
+	 * used component; this is the default), "component" (only the last used component plus a margin, see
+	 * {@link #SCREENSHOT_MARGIN_PARAMETER}) or "screen" (all screens).
+	 */
+	public static final String SCREENSHOT_MODE_PARAMETER = "de.gebit.integrity.bindings.swing.screenshotMode";
+
+	/**
+	 * Screenshot mode: capture the window.
+	 */
+	public static final String SCREENSHOT_MODE_WINDOW = "window";
+
+	/**
+	 * Screenshot mode: capture the last used component.
+	 */
+	public static final String SCREENSHOT_MODE_COMPONENT = "component";
+
+	/**
+	 * Screenshot mode: capture all screens.
+	 */
+	public static final String SCREENSHOT_MODE_SCREEN = "screen";
+
+	/**
+	 * This system property defines the margin in pixels around the component in the "component" screenshot mode.
+	 */
+	public static final String SCREENSHOT_MARGIN_PARAMETER = "de.gebit.integrity.bindings.swing.screenshotMargin";
+
+	/**
+	 * The default margin around the component in the "component" screenshot mode.
+	 */
+	public static final int DEFAULT_SCREENSHOT_MARGIN = 50;
+
+	/**
+	 * This system property defines the maximum width and height of screenshots in pixels. Larger screenshots are scaled
+	 * down. By default, screenshots are not scaled.
+	 */
+	public static final String SCREENSHOT_MAX_DIMENSION_PARAMETER = "de.gebit.integrity.bindings.swing.screenshotMaxDimension";
+
+	/**
+	 * This system property selects the colors of screenshots: "full" (the default), "gray" (grayscale) or "indexed"
+	 * (256 colors).
+	 */
+	public static final String SCREENSHOT_COLORS_PARAMETER = "de.gebit.integrity.bindings.swing.screenshotColors";
+
+	/**
+	 * Screenshot colors: full color.
+	 */
+	public static final String SCREENSHOT_COLORS_FULL = "full";
+
+	/**
+	 * Screenshot colors: grayscale.
+	 */
+	public static final String SCREENSHOT_COLORS_GRAY = "gray";
+
+	/**
+	 * Screenshot colors: 256 indexed colors.
+	 */
+	public static final String SCREENSHOT_COLORS_INDEXED = "indexed";
+
+	/**
+	 * The maximum time in milliseconds to wait for the recorded frames to be encoded after a failure.
+	 */
+	protected static final long SCREENSHOT_ENCODING_TIMEOUT = 10000;
+
+	/**
+	 * The maximum time in milliseconds to wait for the event dispatching thread while collecting the extended results
+	 * of a failed invocation. The failure may well be caused by a blocked event dispatching thread, in which case
+	 * waiting for it without a limit would hang the whole test run.
+	 */
+	protected static final long FAILURE_EVENT_QUEUE_TIMEOUT = 5000;
+
+	/**
+	 * The robot used to take screenshots.
+	 */
+	private static Robot screenshotRobot;
+
+	/**
+	 * The buffer used for offscreen screenshots. Only accessed on the event dispatching thread.
+	 */
+	private static BufferedImage offscreenScreenshotBuffer;
+
 	@Override
 	public List<ExtendedResult> provideExtendedResults(FixtureInvocationResult anInvocationResult) {
-		if (anInvocationResult != FixtureInvocationResult.SUCCESS) {
-			if ("false".equalsIgnoreCase(System.getProperty(SCREENSHOTS_ON_FAILURE_PARAMETER))) {
-				// Screenshots on failure are deactivated
-				return null;
+		List<ExtendedResult> tempResults = new ArrayList<ExtendedResult>();
+
+		if (currentFixtureMethod != null) {
+			EventQueueMonitor tempMonitor = EventQueueMonitor.getInstance();
+			for (EventQueueMonitor.Stall tempStall : tempMonitor.takeStalls(currentFixtureMethod)) {
+				tempResults.add(new ExtendedResultText(tempStall.toString()));
+			}
+			tempMonitor.setCurrentFixtureMethod(null);
+			currentFixtureMethod = null;
+		}
+
+		List<ExtendedResult> tempScreenshot = provideScreenshotOnFailure(anInvocationResult);
+		if (tempScreenshot != null) {
+			tempResults.addAll(tempScreenshot);
+		}
+
+		List<ExtendedResult> tempRecordedFrames = provideRecordedFramesOnFailure(anInvocationResult);
+		if (tempRecordedFrames != null) {
+			tempResults.addAll(tempRecordedFrames);
+		}
+
+		return tempResults.isEmpty() ? null : tempResults;
+	}
+
+	/**
+	 * Provides the frames recorded by the {@link UIFrameRecorder} (if it is enabled) if the invocation was not
+	 * successful. The frames are returned oldest first, each preceded by a short description; the recorder is cleared
+	 * afterwards, so every frame is reported only once. No frames are provided if the event dispatching thread doesn't
+	 * respond within {@link #FAILURE_EVENT_QUEUE_TIMEOUT}.
+	 * 
+	 * @param anInvocationResult
+	 *            the result of the invocation
+	 * @return the frames as extended results, or null if there are none
+	 */
+	protected List<ExtendedResult> provideRecordedFramesOnFailure(FixtureInvocationResult anInvocationResult) {
+		final UIFrameRecorder tempRecorder = UIFrameRecorder.getInstance();
+		if (tempRecorder == null || anInvocationResult == FixtureInvocationResult.SUCCESS) {
+			return null;
+		}
+
+		List<UIFrameRecorder.Frame> tempFrames = callOnEventQueue(new Callable<List<UIFrameRecorder.Frame>>() {
+
+			@Override
+			public List<UIFrameRecorder.Frame> call() {
+				List<UIFrameRecorder.Frame> tempResult = tempRecorder.getFrames();
+				tempRecorder.clear();
+				return tempResult;
 			}
+		}, FAILURE_EVENT_QUEUE_TIMEOUT);
+		if (tempFrames == null || tempFrames.isEmpty()) {
+			// Either nothing was recorded, or the event dispatching thread is blocked
+			return null;
+		}
+
+		List<Future<ExtendedResultImage>> tempFutures = new ArrayList<Future<ExtendedResultImage>>();
+		for (final UIFrameRecorder.Frame tempFrame : tempFrames) {
+			tempFutures.add(ImageEncoderPool.getInstance().submit(new Callable<ExtendedResultImage>() {
+
+				@Override
+				public ExtendedResultImage call() throws IOException {
+					return new ExtendedResultImage(tempFrame.getImage());
+				}
+			}));
+		}
+
+		long tempNow = System.currentTimeMillis();
+		long tempDeadline = tempNow + SCREENSHOT_ENCODING_TIMEOUT;
+		List<ExtendedResult> tempResults = new ArrayList<ExtendedResult>();
+		for (int i = 0; i < tempFrames.size(); i++) {
+			UIFrameRecorder.Frame tempFrame = tempFrames.get(i);
+			tempResults.add(new ExtendedResultText("Recorded frame " + (i + 1) + "/" + tempFrames.size() + " ("
+					+ tempFrame.getDescription() + ", " + (tempNow - tempFrame.getTime()) + "ms before failure)"));
+			try {
+				tempResults.add(tempFutures.get(i).get(Math.max(0, tempDeadline - System.currentTimeMillis()),
+						TimeUnit.MILLISECONDS));
+			} catch (TimeoutException exc) {
+				tempFutures.get(i).cancel(true);
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException exc) {
+				exc.getCause().printStackTrace();
+			}
+		}
+
+		return tempResults;
+	}
+
+	/**
+	 * Determines the window of interest for a screenshot. This is the one in which the last used component is located;
+	 * if that is not possible, it is guessed by using the currently focused window.
+	 * 
+	 * @return the window, or null if none could be determined
+	 */
+	protected Window determineScreenshotWindow() {
+		Window tempWindow = KeyboardFocusManager.getCurrentKeyboardFocusManager().getFocusedWindow();
+
+		if (lastUsedComponent != null) {
+			JComponent tempComponent = lastUsedComponent;
+			Container tempParent = tempComponent.getParent();
+			while (tempParent != null) {
+				if (tempParent instanceof Window) {
+					tempWindow = (Window) tempParent;
+					break;
+				}
+				tempParent = tempParent.getParent();
+			}
+		}
+
+		return tempWindow;
+	}
+
+	/**
+	 * Determines the screen area to capture, according to the {@link #SCREENSHOT_MODE_PARAMETER}.
+	 * 
+	 * @param aWindow
+	 *            the window of interest
+	 * @return the area in screen coordinates
+	 */
+	protected Rectangle determineScreenshotBounds(Window aWindow) {
+		String tempMode = System.getProperty(SCREENSHOT_MODE_PARAMETER, SCREENSHOT_MODE_WINDOW);
+
+		Rectangle tempScreenBounds = new Rectangle();
+		for (GraphicsDevice tempDevice : GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices()) {
+			tempScreenBounds = tempScreenBounds.union(tempDevice.getDefaultConfiguration().getBounds());
+		}
+
+		if (SCREENSHOT_MODE_SCREEN.equalsIgnoreCase(tempMode)) {
+			return tempScreenBounds;
+		} else if (SCREENSHOT_MODE_COMPONENT.equalsIgnoreCase(tempMode) && lastUsedComponent != null
+				&& lastUsedComponent.isShowing()) {
+			int tempMargin = Integer.getInteger(SCREENSHOT_MARGIN_PARAMETER, DEFAULT_SCREENSHOT_MARGIN);
+			Rectangle tempBounds = new Rectangle(lastUsedComponent.getLocationOnScreen(), lastUsedComponent.getSize());
+			tempBounds.grow(tempMargin, tempMargin);
+			tempBounds = tempBounds.intersection(tempScreenBounds);
+			if (!tempBounds.isEmpty()) {
+				return tempBounds;
+			}
+		}
 
-			// Determine the window of interest. Use the one in which the last used component is located; if that is not
-			// possible, guess by using the currently focused window.
-			Window tempWindow = KeyboardFocusManager.getCurrentKeyboardFocusManager().getFocusedWindow();
-
-			if (lastUsedComponent != null) {
-				JComponent tempComponent = lastUsedComponent;
-				Container tempParent = tempComponent.getParent();
-				while (tempParent != null) {
-					if (tempParent instanceof Window) {
-						tempWindow = (Window) tempParent;
-						break;
+		return aWindow.getBounds();
+	}
+
+	/**
+	 * Captures a screenshot using the strategy selected by {@link #SCREENSHOT_STRATEGY_PARAMETER}.
+	 * 
+	 * @param aWindow
+	 *            the window of interest
+	 * @param aBounds
+	 *            the area to capture in screen coordinates
+	 * @return the captured image
+	 * @throws AWTException
+	 */
+	protected BufferedImage captureScreenshot(Window aWindow, Rectangle aBounds) throws AWTException {
+		if (SCREENSHOT_STRATEGY_OFFSCREEN.equalsIgnoreCase(System.getProperty(SCREENSHOT_STRATEGY_PARAMETER))
+				&& aWindow.getWidth() > 0 && aWindow.getHeight() > 0) {
+			return captureScreenshotOffscreen(aWindow, aBounds);
+		}
+
+		return getScreenshotRobot().createScreenCapture(aBounds);
+	}
+
+	/**
+	 * Captures a screenshot by letting the window paint itself into an offscreen buffer. Only the window itself can be
+	 * captured this way, so the given area is cropped to the window bounds. If the event dispatching thread doesn't
+	 * respond within {@link #FAILURE_EVENT_QUEUE_TIMEOUT}, the screen area is captured with the robot instead.
+	 * 
+	 * @param aWindow
+	 *            the window to capture
+	 * @param aBounds
+	 *            the area to capture in screen coordinates
+	 * @return the captured image
+	 * @throws AWTException
+	 */
+	protected BufferedImage captureScreenshotOffscreen(final Window aWindow, final Rectangle aBounds)
+			throws AWTException {
+		BufferedImage tempCapturedImage = callOnEventQueue(new Callable<BufferedImage>() {
+
+			@Override
+			public BufferedImage call() {
+				int tempWidth = aWindow.getWidth();
+				int tempHeight = aWindow.getHeight();
+				BufferedImage tempBuffer = getOffscreenScreenshotBuffer(tempWidth, tempHeight);
+
+				Graphics2D tempGraphics = tempBuffer.createGraphics();
+				tempGraphics.setClip(0, 0, tempWidth, tempHeight);
+				tempGraphics.setColor(aWindow.getBackground() != null ? aWindow.getBackground() : Color.WHITE);
+				tempGraphics.fillRect(0, 0, tempWidth, tempHeight);
+				aWindow.printAll(tempGraphics);
+				tempGraphics.dispose();
+
+				Rectangle tempWindowArea = new Rectangle(0, 0, tempWidth, tempHeight);
+				Rectangle tempArea = tempWindowArea;
+				if (aWindow.isShowing()) {
+					Point tempLocation = aWindow.getLocationOnScreen();
+					tempArea = new Rectangle(aBounds);
+					tempArea.translate(-tempLocation.x, -tempLocation.y);
+					tempArea = tempArea.intersection(tempWindowArea);
+					if (tempArea.isEmpty()) {
+						tempArea = tempWindowArea;
 					}
-					tempParent = tempParent.getParent();
 				}
+
+				// The buffer is reused for the next screenshot, so the result must be a copy
+				BufferedImage tempImage = new BufferedImage(tempArea.width, tempArea.height,
+						BufferedImage.TYPE_INT_RGB);
+				tempGraphics = tempImage.createGraphics();
+				tempGraphics.drawImage(tempBuffer, -tempArea.x, -tempArea.y, null);
+				tempGraphics.dispose();
+				return tempImage;
+			}
+		}, FAILURE_EVENT_QUEUE_TIMEOUT);
+
+		return tempCapturedImage != null ? tempCapturedImage : getScreenshotRobot().createScreenCapture(aBounds);
+	}
+
+	/**
+	 * Returns the buffer for offscreen screenshots, which is reused as long as it is large enough. Must only be called
+	 * on the event dispatching thread.
+	 * 
+	 * @param aWidth
+	 *            the minimum width
+	 * @param aHeight
+	 *            the minimum height
+	 * @return the buffer
+	 */
+	private static BufferedImage getOffscreenScreenshotBuffer(int aWidth, int aHeight) {
+		if (offscreenScreenshotBuffer == null || offscreenScreenshotBuffer.getWidth() < aWidth
+				|| offscreenScreenshotBuffer.getHeight() < aHeight) {
+			int tempWidth = aWidth;
+			int tempHeight = aHeight;
+			if (offscreenScreenshotBuffer != null) {
+				tempWidth = Math.max(tempWidth, offscreenScreenshotBuffer.getWidth());
+				tempHeight = Math.max(tempHeight, offscreenScreenshotBuffer.getHeight());
 			}
+			offscreenScreenshotBuffer = new BufferedImage(tempWidth, tempHeight, BufferedImage.TYPE_INT_RGB);
+		}
+		return offscreenScreenshotBuffer;
+	}
 
+	/**
+	 * Shrinks a captured screenshot according to the {@link #SCREENSHOT_MAX_DIMENSION_PARAMETER} and
+	 * {@link #SCREENSHOT_COLORS_PARAMETER} settings. Runs on the test thread.
+	 * 
+	 * @param anImage
+	 *            the captured image
+	 * @return the image to include in the results (may be the same instance)
+	 */
+	protected BufferedImage postProcessScreenshot(BufferedImage anImage) {
+		int tempMaxDimension = Integer.getInteger(SCREENSHOT_MAX_DIMENSION_PARAMETER, 0);
+		String tempColors = System.getProperty(SCREENSHOT_COLORS_PARAMETER, SCREENSHOT_COLORS_FULL);
+
+		int tempWidth = anImage.getWidth();
+		int tempHeight = anImage.getHeight();
+		if (tempMaxDimension > 0 && (tempWidth > tempMaxDimension || tempHeight > tempMaxDimension)) {
+			double tempScalingFactor = (double) tempMaxDimension / (double) Math.max(tempWidth, tempHeight);
+			tempWidth = Math.max(1, (int) Math.round(tempWidth * tempScalingFactor));
+			tempHeight = Math.max(1, (int) Math.round(tempHeight * tempScalingFactor));
+		}
+
+		int tempType;
+		if (SCREENSHOT_COLORS_GRAY.equalsIgnoreCase(tempColors)) {
+			tempType = BufferedImage.TYPE_BYTE_GRAY;
+		} else if (SCREENSHOT_COLORS_INDEXED.equalsIgnoreCase(tempColors)) {
+			tempType = BufferedImage.TYPE_BYTE_INDEXED;
+		} else {
+			tempType = anImage.getType();
+		}
+
+		if (tempWidth == anImage.getWidth() && tempHeight == anImage.getHeight() && tempType == anImage.getType()) {
+			return anImage;
+		}
+
+		BufferedImage tempImage = new BufferedImage(tempWidth, tempHeight,
+				tempType == BufferedImage.TYPE_CUSTOM ? BufferedImage.TYPE_INT_RGB : tempType);
+		Graphics2D tempGraphics = tempImage.createGraphics();
+		tempGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		tempGraphics.drawImage(anImage, 0, 0, tempWidth, tempHeight, null);
+		tempGraphics.dispose();
+		return tempImage;
+	}
+
+	/**
+	 * Returns the robot used to take screenshots. A single robot is shared, since creating one is rather expensive.
+	 * 
+	 * @return the robot
+	 * @throws AWTException
+	 */
+	protected static synchronized Robot getScreenshotRobot() throws AWTException {
+		if (screenshotRobot == null) {
+			screenshotRobot = new Robot();
+		}
+		return screenshotRobot;
+	}
+
+	/**
+	 * Takes a screenshot if the invocation was not successful, unless screenshots are deactivated (see
+	 * {@link #SCREENSHOTS_ON_FAILURE_PARAMETER}).
+	 * 
+	 * @param anInvocationResult
+	 *            the result of the invocation
+	 * @return the screenshot as extended result, or null if none was taken
+	 */
+	protected List<ExtendedResult> provideScreenshotOnFailure(FixtureInvocationResult anInvocationResult) {
+		if (anInvocationResult != FixtureInvocationResult.SUCCESS) {
+			if ("false".equalsIgnoreCase(System.getProperty(SCREENSHOTS_ON_FAILURE_PARAMETER))) {
+				// Screenshots on failure are deactivated
+				return null;
+			}
+
+			Window tempWindow = determineScreenshotWindow();
 			if (tempWindow != null) {
 				try {
-					BufferedImage tempImage = new Robot().createScreenCapture(tempWindow.getBounds());
+					// Integrity collects the extended results synchronously, so the image is post-processed and encoded
+					// right here on the test thread; handing it to another thread would only add the hand-off
+					BufferedImage tempImage = postProcessScreenshot(captureScreenshot(tempWindow,
+							determineScreenshotBounds(tempWindow)));
 					return Arrays.asList(new ExtendedResult[] { new ExtendedResultImage(tempImage) });
-				} catch (AWTException exc) {
-					exc.printStackTrace();
 				} catch (IOException exc) {
 					exc.printStackTrace();
+				} catch (AWTException exc) {
+					exc.printStackTrace();
 				}
 			}
 		}
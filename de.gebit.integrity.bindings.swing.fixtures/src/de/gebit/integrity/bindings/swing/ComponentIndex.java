@@ -0,0 +1,428 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing;
+
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Toolkit;
+import java.awt.Window;
+import java.awt.event.AWTEventListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ContainerEvent;
+import java.awt.event.WindowEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * A JVM-wide index of all components contained in any window, keyed by component name as well as by component class.
+ * The index is kept up to date by listening to container events on the AWT toolkit (and to name changes on the indexed
+ * components), so finding a component by name or class does not require walking the whole component tree of all
+ * windows.<br>
+ * <br>
+ * Components are only referenced weakly, so the index does not prevent disposed windows from being garbage collected.
+ * Windows themselves are not part of the index; there are usually only few of them, which are available via
+ * {@link Window#getWindows()}.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public final class ComponentIndex {
+
+	/**
+	 * The singleton instance.
+	 */
+	private static ComponentIndex instance;
+
+	/**
+	 * All named components, keyed by their (normalized) name.
+	 */
+	private final Map<String, Set<Component>> componentsByName = new HashMap<String, Set<Component>>();
+
+	/**
+	 * All components, keyed by their concrete class.
+	 */
+	private final Map<Class<?>, Set<Component>> componentsByClass = new HashMap<Class<?>, Set<Component>>();
+
+	/**
+	 * The names under which the components are currently indexed. Also used to determine whether a component is indexed
+	 * at all (unnamed components are contained with a null value).
+	 */
+	private final Map<Component, String> indexedComponents = new WeakHashMap<Component, String>();
+
+	/**
+	 * The windows whose visibility and name are being observed (see {@link #windowVisibilityListener} and
+	 * {@link #windowNameListener}).
+	 */
+	private final Map<Window, Boolean> observedWindows = new WeakHashMap<Window, Boolean>();
+
+	/**
+	 * Is incremented on every change of the index, and whenever a window is shown, hidden or renamed.
+	 */
+	private volatile long revision;
+
+	/**
+	 * The listener which keeps the index current when components are added to or removed from containers.
+	 */
+	private final AWTEventListener containerListener = new AWTEventListener() {
+
+		@Override
+		public void eventDispatched(AWTEvent anEvent) {
+			if (anEvent instanceof ContainerEvent) {
+				ContainerEvent tempEvent = (ContainerEvent) anEvent;
+				if (tempEvent.getID() == ContainerEvent.COMPONENT_ADDED) {
+					addTree(tempEvent.getChild());
+				} else if (tempEvent.getID() == ContainerEvent.COMPONENT_REMOVED) {
+					removeTree(tempEvent.getChild());
+				}
+			}
+		}
+	};
+
+	/**
+	 * The listener which notices windows being opened or closed. Opened windows are observed for later visibility
+	 * changes, since showing a window again after hiding it doesn't cause any window events.
+	 */
+	private final AWTEventListener windowListener = new AWTEventListener() {
+
+		@Override
+		public void eventDispatched(AWTEvent anEvent) {
+			if (anEvent instanceof WindowEvent) {
+				WindowEvent tempEvent = (WindowEvent) anEvent;
+				if (tempEvent.getID() == WindowEvent.WINDOW_OPENED) {
+					observeWindow(tempEvent.getWindow());
+					windowChanged();
+				} else if (tempEvent.getID() == WindowEvent.WINDOW_CLOSED) {
+					windowChanged();
+				}
+			}
+		}
+	};
+
+	/**
+	 * The listener which notices observed windows being shown or hidden. Components in hidden windows can't be found,
+	 * so a path can become ambiguous (or unique) without any component being added or removed.
+	 */
+	private final ComponentAdapter windowVisibilityListener = new ComponentAdapter() {
+
+		@Override
+		public void componentShown(ComponentEvent anEvent) {
+			windowChanged();
+		}
+
+		@Override
+		public void componentHidden(ComponentEvent anEvent) {
+			windowChanged();
+		}
+	};
+
+	/**
+	 * The listener which notices observed windows being renamed. Windows are not indexed, but their names are part of
+	 * the component paths, so a path can start or stop denoting a component by renaming its window.
+	 */
+	private final PropertyChangeListener windowNameListener = new PropertyChangeListener() {
+
+		@Override
+		public void propertyChange(PropertyChangeEvent anEvent) {
+			windowChanged();
+		}
+	};
+
+	/**
+	 * The listener which re-indexes components when their name changes.
+	 */
+	private final PropertyChangeListener nameListener = new PropertyChangeListener() {
+
+		@Override
+		public void propertyChange(PropertyChangeEvent anEvent) {
+			updateName((Component) anEvent.getSource());
+		}
+	};
+
+	/**
+	 * Private constructor; use {@link #getInstance()}.
+	 */
+	private ComponentIndex() {
+		// use getInstance()
+	}
+
+	/**
+	 * Returns the index instance. The index is installed and initially filled with all components of all existing
+	 * windows on the first call.
+	 * 
+	 * @return the index
+	 */
+	public static synchronized ComponentIndex getInstance() {
+		if (instance == null) {
+			instance = new ComponentIndex();
+			instance.install();
+		}
+		return instance;
+	}
+
+	/**
+	 * Registers the listeners and indexes all components which already exist.
+	 */
+	private void install() {
+		Toolkit.getDefaultToolkit().addAWTEventListener(containerListener, AWTEvent.CONTAINER_EVENT_MASK);
+		Toolkit.getDefaultToolkit().addAWTEventListener(windowListener, AWTEvent.WINDOW_EVENT_MASK);
+
+		for (Window tempWindow : Window.getWindows()) {
+			observeWindow(tempWindow);
+			for (Component tempChild : tempWindow.getComponents()) {
+				addTree(tempChild);
+			}
+		}
+	}
+
+	/**
+	 * Normalizes a component name into the form in which it is used in component paths (dots are not allowed in path
+	 * parts, since they separate the parts).
+	 * 
+	 * @param aName
+	 *            the raw component name
+	 * @return the normalized name, or null if the name was null
+	 */
+	public static String normalizeName(String aName) {
+		return aName != null ? aName.replace('.', '_') : null;
+	}
+
+	/**
+	 * Returns the current revision of the index. The revision changes every time a component is added, removed or
+	 * renamed, and every time a window is opened, closed, shown, hidden or renamed.
+	 * 
+	 * @return the revision
+	 */
+	public long getRevision() {
+		return revision;
+	}
+
+	/**
+	 * Returns all indexed components whose normalized name (see {@link #normalizeName(String)}) matches the given name.
+	 * 
+	 * @param aName
+	 *            the name to look for
+	 * @return the components (never null, may be empty)
+	 */
+	public synchronized List<Component> getComponentsByName(String aName) {
+		Set<Component> tempSet = componentsByName.get(aName);
+		if (tempSet == null || tempSet.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<Component>(tempSet);
+	}
+
+	/**
+	 * Returns all indexed components whose class is the given class or a subclass of it.
+	 * 
+	 * @param aClass
+	 *            the class to filter for, or null if all components shall be returned
+	 * @return the components (never null, may be empty)
+	 */
+	public synchronized List<Component> getComponentsByClass(Class<?> aClass) {
+		List<Component> tempResult = new ArrayList<Component>();
+		for (Entry<Class<?>, Set<Component>> tempEntry : componentsByClass.entrySet()) {
+			if (aClass == null || aClass.isAssignableFrom(tempEntry.getKey())) {
+				tempResult.addAll(tempEntry.getValue());
+			}
+		}
+		return tempResult;
+	}
+
+	/**
+	 * Returns all component classes for which at least one component is indexed.
+	 * 
+	 * @return the classes
+	 */
+	public synchronized List<Class<?>> getIndexedClasses() {
+		List<Class<?>> tempResult = new ArrayList<Class<?>>(componentsByClass.size());
+		for (Entry<Class<?>, Set<Component>> tempEntry : componentsByClass.entrySet()) {
+			if (!tempEntry.getValue().isEmpty()) {
+				tempResult.add(tempEntry.getKey());
+			}
+		}
+		return tempResult;
+	}
+
+	/**
+	 * Starts observing the visibility and the name of the given window, if it isn't observed already.
+	 * 
+	 * @param aWindow
+	 *            the window
+	 */
+	private synchronized void observeWindow(Window aWindow) {
+		if (!observedWindows.containsKey(aWindow)) {
+			observedWindows.put(aWindow, Boolean.TRUE);
+			aWindow.addComponentListener(windowVisibilityListener);
+			aWindow.addPropertyChangeListener("name", windowNameListener);
+		}
+	}
+
+	/**
+	 * Records a change of the visibility or the name of a window.
+	 */
+	private synchronized void windowChanged() {
+		revision++;
+	}
+
+	/**
+	 * Adds the given component and all its children to the index.
+	 * 
+	 * @param aComponent
+	 *            the root of the tree to add
+	 */
+	private void addTree(Component aComponent) {
+		if (aComponent instanceof Window) {
+			// Windows are not part of the index
+			return;
+		}
+
+		List<Component> tempTree = collectTree(aComponent);
+		synchronized (this) {
+			for (Component tempComponent : tempTree) {
+				if (!indexedComponents.containsKey(tempComponent)) {
+					String tempName = normalizeName(tempComponent.getName());
+					indexedComponents.put(tempComponent, tempName);
+					getBucket(componentsByClass, tempComponent.getClass()).add(tempComponent);
+					if (tempName != null) {
+						getBucket(componentsByName, tempName).add(tempComponent);
+					}
+					tempComponent.addPropertyChangeListener("name", nameListener);
+					revision++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the given component and all its children from the index.
+	 * 
+	 * @param aComponent
+	 *            the root of the tree to remove
+	 */
+	private void removeTree(Component aComponent) {
+		List<Component> tempTree = collectTree(aComponent);
+		synchronized (this) {
+			for (Component tempComponent : tempTree) {
+				if (indexedComponents.containsKey(tempComponent)) {
+					String tempName = indexedComponents.remove(tempComponent);
+					removeFromBucket(componentsByClass, tempComponent.getClass(), tempComponent);
+					if (tempName != null) {
+						removeFromBucket(componentsByName, tempName, tempComponent);
+					}
+					tempComponent.removePropertyChangeListener("name", nameListener);
+					revision++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collects the given component and all its children. This is done while holding the AWT tree lock, but never while
+	 * holding the monitor of the index: container events are dispatched to the {@link #containerListener} with the tree
+	 * lock already held, so taking both locks in the opposite order could deadlock.
+	 * 
+	 * @param aComponent
+	 *            the root of the tree
+	 * @return the components of the tree, root first
+	 */
+	private static List<Component> collectTree(Component aComponent) {
+		List<Component> tempResult = new ArrayList<Component>();
+		synchronized (aComponent.getTreeLock()) {
+			collectTree(aComponent, tempResult);
+		}
+		return tempResult;
+	}
+
+	/**
+	 * Recursively collects the given component and all its children. Must be called while holding the AWT tree lock.
+	 * 
+	 * @param aComponent
+	 *            the root of the tree
+	 * @param aResult
+	 *            the list to add the components to
+	 */
+	private static void collectTree(Component aComponent, List<Component> aResult) {
+		aResult.add(aComponent);
+		if (aComponent instanceof Container) {
+			for (Component tempChild : ((Container) aComponent).getComponents()) {
+				collectTree(tempChild, aResult);
+			}
+		}
+	}
+
+	/**
+	 * Moves a component to the name bucket matching its current name.
+	 * 
+	 * @param aComponent
+	 *            the component which was renamed
+	 */
+	private synchronized void updateName(Component aComponent) {
+		if (!indexedComponents.containsKey(aComponent)) {
+			return;
+		}
+
+		String tempOldName = indexedComponents.get(aComponent);
+		String tempNewName = normalizeName(aComponent.getName());
+		if (tempOldName != null) {
+			removeFromBucket(componentsByName, tempOldName, aComponent);
+		}
+		if (tempNewName != null) {
+			getBucket(componentsByName, tempNewName).add(aComponent);
+		}
+		indexedComponents.put(aComponent, tempNewName);
+		revision++;
+	}
+
+	/**
+	 * Returns the (weak) set of components for the given key, creating it if necessary.
+	 * 
+	 * @param aMap
+	 *            the map to use
+	 * @param aKey
+	 *            the key
+	 * @return the set
+	 */
+	private static <K> Set<Component> getBucket(Map<K, Set<Component>> aMap, K aKey) {
+		Set<Component> tempSet = aMap.get(aKey);
+		if (tempSet == null) {
+			tempSet = Collections.newSetFromMap(new WeakHashMap<Component, Boolean>());
+			aMap.put(aKey, tempSet);
+		}
+		return tempSet;
+	}
+
+	/**
+	 * Removes a component from the set of components for the given key, dropping the set if it became empty.
+	 * 
+	 * @param aMap
+	 *            the map to use
+	 * @param aKey
+	 *            the key
+	 * @param aComponent
+	 *            the component to remove
+	 */
+	private static <K> void removeFromBucket(Map<K, Set<Component>> aMap, K aKey, Component aComponent) {
+		Set<Component> tempSet = aMap.get(aKey);
+		if (tempSet != null) {
+			tempSet.remove(aComponent);
+			if (tempSet.isEmpty()) {
+				aMap.remove(aKey);
+			}
+		}
+	}
+}
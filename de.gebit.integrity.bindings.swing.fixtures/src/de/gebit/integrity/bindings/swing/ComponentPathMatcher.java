@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing;
+
+import java.awt.Component;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+/**
+ * A compiled, immutable form of a component path. The path is split into its parts only once; a "uniquified" path
+ * (one with a number appended, like "someButton#2") additionally carries the compiled base path and the number.<br>
+ * <br>
+ * Compiled matchers are cached in a bounded LRU cache keyed by the path string, so that paths which are used over and
+ * over again in a test suite don't need to be parsed on every lookup. Use {@link #compile(String)} to obtain instances.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public final class ComponentPathMatcher {
+
+	/**
+	 * The maximum number of compiled paths which are kept in the cache.
+	 */
+	public static final int CACHE_SIZE = 500;
+
+	/**
+	 * The cache of compiled paths. Access must be synchronized on the map.
+	 */
+	private static final Map<String, ComponentPathMatcher> CACHE = new LinkedHashMap<String, ComponentPathMatcher>(
+			CACHE_SIZE, 0.75f, true) {
+
+		/**
+		 * Serialization...
+		 */
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ComponentPathMatcher> anEldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * The path string.
+	 */
+	private final String path;
+
+	/**
+	 * The parts of the path.
+	 */
+	private final String[] parts;
+
+	/**
+	 * The compiled path without the number, if this is a "uniquified" path. Null otherwise.
+	 */
+	private final ComponentPathMatcher baseMatcher;
+
+	/**
+	 * The number at the end of a "uniquified" path, or -1 if this isn't one.
+	 */
+	private final int index;
+
+	/**
+	 * Creates an instance.
+	 * 
+	 * @param aPath
+	 *            the path to compile
+	 */
+	private ComponentPathMatcher(String aPath) {
+		path = aPath;
+		parts = aPath.split("\\.");
+
+		Matcher tempMatcher = AbstractSwingComponentHandler.UNIQUIFIED_PATH_PATTERN.matcher(aPath);
+		if (tempMatcher.matches()) {
+			baseMatcher = compile(tempMatcher.group(1));
+			index = Integer.parseInt(tempMatcher.group(2));
+		} else {
+			baseMatcher = null;
+			index = -1;
+		}
+	}
+
+	/**
+	 * Returns the compiled form of the given path, either from the cache or by compiling it.
+	 * 
+	 * @param aPath
+	 *            the path
+	 * @return the compiled path
+	 */
+	public static ComponentPathMatcher compile(String aPath) {
+		synchronized (CACHE) {
+			ComponentPathMatcher tempMatcher = CACHE.get(aPath);
+			if (tempMatcher != null) {
+				return tempMatcher;
+			}
+		}
+
+		// Compile outside the lock; in the worst case a path is compiled twice, which doesn't hurt
+		ComponentPathMatcher tempMatcher = new ComponentPathMatcher(aPath);
+		synchronized (CACHE) {
+			CACHE.put(aPath, tempMatcher);
+		}
+		return tempMatcher;
+	}
+
+	/**
+	 * Returns the path string.
+	 * 
+	 * @return the path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the number of parts of the path.
+	 * 
+	 * @return the number of parts
+	 */
+	public int getPartCount() {
+		return parts.length;
+	}
+
+	/**
+	 * Returns a single part of the path.
+	 * 
+	 * @param aPosition
+	 *            the position of the part
+	 * @return the part
+	 */
+	public String getPart(int aPosition) {
+		return parts[aPosition];
+	}
+
+	/**
+	 * Returns the last part of the path, which has to match the component itself.
+	 * 
+	 * @return the last part
+	 */
+	public String getLastPart() {
+		return parts[parts.length - 1];
+	}
+
+	/**
+	 * Returns the compiled path without the number if this path is a "uniquified" one.
+	 * 
+	 * @return the base path, or null if this path doesn't end with a number
+	 */
+	public ComponentPathMatcher getBaseMatcher() {
+		return baseMatcher;
+	}
+
+	/**
+	 * Returns the number at the end of a "uniquified" path.
+	 * 
+	 * @return the number, or -1 if this path doesn't end with a number
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Checks whether the last component in the given ancestor chain is matched by this path. This performs exactly the
+	 * same checks as {@link AbstractSwingComponentHandler#findComponentsInContainer(java.awt.Container, String, Class)}
+	 * does while descending from the window, but only along a single branch of the component tree: unnamed containers
+	 * may be skipped, unnamed components may be matched by their generic name, and named components which don't match
+	 * the expected path part restart the matching with the first part of the path.
+	 * 
+	 * @param aChain
+	 *            the ancestor chain, starting with the window (see
+	 *            {@link AbstractSwingComponentHandler#getAncestorChain(Component)})
+	 * @param aHandler
+	 *            the handler which determines the (generic) component names
+	 * @return true if the last component in the chain matches the path
+	 */
+	public boolean matches(Component[] aChain, AbstractSwingComponentHandler aHandler) {
+		int tempLastPosition = parts.length - 1;
+		boolean[] tempPositions = new boolean[parts.length];
+		boolean[] tempNextPositions = new boolean[parts.length];
+
+		String tempWindowName = aHandler.getComponentName(aChain[0]);
+		if (tempWindowName != null && parts[0].equals(tempWindowName)) {
+			if (tempLastPosition == 0) {
+				return aChain.length == 1;
+			}
+			tempPositions[1] = true;
+		} else {
+			tempPositions[0] = true;
+		}
+
+		for (int i = 1; i < aChain.length; i++) {
+			Component tempComponent = aChain[i];
+			boolean tempIsTarget = i == aChain.length - 1;
+			String tempName = aHandler.getComponentName(tempComponent);
+			String tempGenericName = tempName == null ? aHandler.getGenericComponentName(tempComponent) : null;
+			boolean tempAnyPosition = false;
+
+			for (int p = 0; p <= tempLastPosition; p++) {
+				if (!tempPositions[p]) {
+					continue;
+				}
+
+				boolean tempMatches;
+				if (tempName == null) {
+					// Unnamed containers are allowed gaps in the path...
+					tempNextPositions[p] = true;
+					// ...but could also be matched by their generic name
+					tempMatches = parts[p].equals(tempGenericName);
+				} else {
+					tempMatches = parts[p].equals(tempName);
+					if (!tempMatches) {
+						tempNextPositions[0] = true;
+					}
+				}
+
+				if (tempMatches) {
+					if (p == tempLastPosition) {
+						if (tempIsTarget) {
+							return true;
+						}
+					} else {
+						tempNextPositions[p + 1] = true;
+					}
+				}
+				tempAnyPosition = true;
+			}
+
+			if (!tempAnyPosition) {
+				return false;
+			}
+
+			boolean[] tempSwap = tempPositions;
+			tempPositions = tempNextPositions;
+			tempNextPositions = tempSwap;
+			Arrays.fill(tempNextPositions, false);
+		}
+
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+}
@@ -0,0 +1,381 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Window;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A suffix tree of the full component paths of all components in a set of windows. It is built in a single traversal
+ * of the component trees and can then determine the shortest unique path and the "uniquified" path of every contained
+ * component without searching the windows again for each candidate path.<br>
+ * <br>
+ * Every node in the tree represents a path suffix and holds all components whose full path ends with that suffix, in
+ * the order in which {@link AbstractSwingComponentHandler#findComponents(String, Class, javax.swing.JFrame)} would
+ * return them. Since a component can only be found by a path which is a suffix of its full path, only the components
+ * in that node need to be checked in order to find all matches of a path. The only exception are paths which use the
+ * generic name of an unnamed container in one of the inner path parts; for those, the paths are determined by the
+ * handler in the conventional way.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public class ComponentPathSuffixTree {
+
+	/**
+	 * The handler which determines component names and matches paths.
+	 */
+	private final AbstractSwingComponentHandler handler;
+
+	/**
+	 * The root node (the empty suffix).
+	 */
+	private final Node root = new Node();
+
+	/**
+	 * The full path (as parts) of every contained component.
+	 */
+	private final Map<Component, String[]> paths = new IdentityHashMap<Component, String[]>();
+
+	/**
+	 * All contained components, in the order in which they were added.
+	 */
+	private final List<Component> components = new ArrayList<Component>();
+
+	/**
+	 * The generic names of all unnamed containers which have children. Paths with these names in one of their inner
+	 * parts could match components which are not contained in the respective node.
+	 */
+	private final Set<String> genericContainerNames = new HashSet<String>();
+
+	/**
+	 * Creates a suffix tree of all components in the given windows.
+	 * 
+	 * @param aHandler
+	 *            the handler to use for component names and path matching
+	 * @param someWindows
+	 *            the windows to include
+	 */
+	public ComponentPathSuffixTree(AbstractSwingComponentHandler aHandler, List<? extends Window> someWindows) {
+		handler = aHandler;
+
+		List<String> tempAncestorNames = new ArrayList<String>();
+		for (Window tempWindow : someWindows) {
+			addTree(tempWindow, tempAncestorNames);
+		}
+	}
+
+	/**
+	 * Creates a suffix tree of all components in all visible windows.
+	 * 
+	 * @param aHandler
+	 *            the handler to use for component names and path matching
+	 * @return the tree
+	 */
+	public static ComponentPathSuffixTree createForVisibleWindows(AbstractSwingComponentHandler aHandler) {
+		List<Window> tempWindows = new ArrayList<Window>();
+		for (Window tempWindow : Window.getWindows()) {
+			if (tempWindow.isVisible()) {
+				tempWindows.add(tempWindow);
+			}
+		}
+		return new ComponentPathSuffixTree(aHandler, tempWindows);
+	}
+
+	/**
+	 * Adds the given component and all its children to the tree, children first.
+	 * 
+	 * @param aComponent
+	 *            the component to add
+	 * @param someAncestorNames
+	 *            the names of all named ancestors of the component, outermost first
+	 */
+	private void addTree(Component aComponent, List<String> someAncestorNames) {
+		String tempName = handler.getComponentName(aComponent);
+
+		if (aComponent instanceof Container) {
+			Component[] tempChildren = ((Container) aComponent).getComponents();
+			if (tempChildren.length > 0) {
+				if (tempName != null) {
+					someAncestorNames.add(tempName);
+				} else if (!(aComponent instanceof Window)) {
+					genericContainerNames.add(handler.getGenericComponentName(aComponent));
+				}
+				for (Component tempChild : tempChildren) {
+					addTree(tempChild, someAncestorNames);
+				}
+				if (tempName != null) {
+					someAncestorNames.remove(someAncestorNames.size() - 1);
+				}
+			}
+		}
+
+		String[] tempPath = someAncestorNames.toArray(new String[someAncestorNames.size() + 1]);
+		tempPath[tempPath.length - 1] = (tempName != null) ? tempName : handler.getGenericComponentName(aComponent);
+		paths.put(aComponent, tempPath);
+		components.add(aComponent);
+
+		Node tempNode = root;
+		for (int i = tempPath.length - 1; i >= 0; i--) {
+			tempNode = tempNode.getOrCreateChild(tempPath[i]);
+			tempNode.components.add(aComponent);
+		}
+	}
+
+	/**
+	 * Whether the given component is contained in the tree.
+	 * 
+	 * @param aComponent
+	 *            the component
+	 * @return true if it is contained
+	 */
+	public boolean contains(Component aComponent) {
+		return paths.containsKey(aComponent);
+	}
+
+	/**
+	 * Returns all contained components (except for the windows themselves) matching the given class, in the same order
+	 * in which {@link AbstractSwingComponentHandler#findComponents(String, Class, javax.swing.JFrame)} would return
+	 * them if no path was given.
+	 * 
+	 * @param aComponentClass
+	 *            the class to filter for, or null if no class filtering is to be done
+	 * @return the components
+	 */
+	@SuppressWarnings("unchecked")
+	public <C extends Component> List<C> getComponents(Class<C> aComponentClass) {
+		Class<C> tempClass = handler.resolveToBase(aComponentClass);
+
+		List<C> tempResult = new ArrayList<C>();
+		for (Component tempComponent : components) {
+			if (!(tempComponent instanceof Window)
+					&& (tempClass == null || tempClass.isAssignableFrom(tempComponent.getClass()))) {
+				tempResult.add((C) tempComponent);
+			}
+		}
+		return tempResult;
+	}
+
+	/**
+	 * Returns the full path to the given component (see
+	 * {@link AbstractSwingComponentHandler#createComponentPath(Component)}).
+	 * 
+	 * @param aComponent
+	 *            the component
+	 * @return the path or null if the component isn't contained in the tree
+	 */
+	public String getComponentPath(Component aComponent) {
+		String[] tempPath = paths.get(aComponent);
+		return tempPath != null ? joinParts(tempPath, 0) : null;
+	}
+
+	/**
+	 * Returns the shortest unique path to the given component (see
+	 * {@link AbstractSwingComponentHandler#createShortestComponentPath(Component)}).
+	 * 
+	 * @param aComponent
+	 *            the component
+	 * @return the shortest unique path or null if no unique path is found
+	 */
+	public String getShortestComponentPath(Component aComponent) {
+		String[] tempPath = paths.get(aComponent);
+		if (tempPath == null || usesGenericContainerName(tempPath)) {
+			return handler.createShortestComponentPath(aComponent);
+		}
+
+		Node[] tempNodes = getSuffixNodes(tempPath);
+		Class<? extends Component> tempClass = handler.resolveToBase(aComponent.getClass());
+
+		String tempShortestPath = null;
+		for (int i = 0; i < tempPath.length; i++) {
+			String tempCandidate = joinParts(tempPath, i);
+			if (countMatches(tempNodes[tempPath.length - i], ComponentPathMatcher.compile(tempCandidate), tempClass,
+					2) <= 1) {
+				tempShortestPath = tempCandidate;
+			} else {
+				break;
+			}
+		}
+		return tempShortestPath;
+	}
+
+	/**
+	 * Returns the full path to the given component, enriched with a number if the path is not unique (see
+	 * {@link AbstractSwingComponentHandler#createUniquifiedComponentPath(Component)}).
+	 * 
+	 * @param aComponent
+	 *            the component
+	 * @return the unique path
+	 */
+	public String getUniquifiedComponentPath(Component aComponent) {
+		String[] tempPath = paths.get(aComponent);
+		if (tempPath == null || usesGenericContainerName(tempPath)) {
+			return handler.createUniquifiedComponentPath(aComponent);
+		}
+
+		Node tempNode = getSuffixNodes(tempPath)[tempPath.length];
+		String tempFullPath = joinParts(tempPath, 0);
+		ComponentPathMatcher tempMatcher = ComponentPathMatcher.compile(tempFullPath);
+		Class<? extends Component> tempClass = handler.resolveToBase(aComponent.getClass());
+
+		if (countMatches(tempNode, tempMatcher, tempClass, 2) > 1) {
+			int tempPosition = 0;
+			for (Component tempCandidate : tempNode.components) {
+				if (isMatch(tempCandidate, tempMatcher, tempClass)) {
+					if (tempCandidate == aComponent) {
+						return tempFullPath + "#" + tempPosition;
+					}
+					tempPosition++;
+				}
+			}
+		}
+		return tempFullPath;
+	}
+
+	/**
+	 * Checks whether one of the inner parts of a path (all but the last one) could also match an unnamed container by
+	 * its generic name.
+	 * 
+	 * @param aPath
+	 *            the path parts
+	 * @return true if the suffix tree cannot be used to find all matches for suffixes of the path
+	 */
+	private boolean usesGenericContainerName(String[] aPath) {
+		for (int i = 0; i < aPath.length - 1; i++) {
+			if (genericContainerNames.contains(aPath[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the nodes for all suffixes of the given path. The node at index n represents the suffix of length n.
+	 * 
+	 * @param aPath
+	 *            the path parts
+	 * @return the nodes
+	 */
+	private Node[] getSuffixNodes(String[] aPath) {
+		Node[] tempNodes = new Node[aPath.length + 1];
+		tempNodes[0] = root;
+		for (int i = 1; i <= aPath.length; i++) {
+			tempNodes[i] = tempNodes[i - 1].children.get(aPath[aPath.length - i]);
+		}
+		return tempNodes;
+	}
+
+	/**
+	 * Counts the components in the given node which are actually matched by the path.
+	 * 
+	 * @param aNode
+	 *            the node
+	 * @param aMatcher
+	 *            the compiled path
+	 * @param aClass
+	 *            the class filter
+	 * @param aLimit
+	 *            counting stops when this number of matches is reached
+	 * @return the number of matches (at most aLimit)
+	 */
+	private int countMatches(Node aNode, ComponentPathMatcher aMatcher, Class<?> aClass, int aLimit) {
+		int tempCount = 0;
+		for (Component tempCandidate : aNode.components) {
+			if (isMatch(tempCandidate, aMatcher, aClass)) {
+				tempCount++;
+				if (tempCount >= aLimit) {
+					break;
+				}
+			}
+		}
+		return tempCount;
+	}
+
+	/**
+	 * Checks whether the given component is matched by a path and class.
+	 * 
+	 * @param aCandidate
+	 *            the component
+	 * @param aMatcher
+	 *            the compiled path
+	 * @param aClass
+	 *            the class filter
+	 * @return true if the component matches
+	 */
+	private boolean isMatch(Component aCandidate, ComponentPathMatcher aMatcher, Class<?> aClass) {
+		if (aClass != null && !aClass.isAssignableFrom(aCandidate.getClass())) {
+			return false;
+		}
+		Component[] tempChain = handler.getAncestorChain(aCandidate);
+		return tempChain != null && aMatcher.matches(tempChain, handler);
+	}
+
+	/**
+	 * Joins path parts to a path string.
+	 * 
+	 * @param aPath
+	 *            the parts
+	 * @param aStart
+	 *            the index of the first part to use
+	 * @return the path string
+	 */
+	private static String joinParts(String[] aPath, int aStart) {
+		StringBuilder tempBuilder = new StringBuilder();
+		for (int i = aStart; i < aPath.length; i++) {
+			if (tempBuilder.length() > 0) {
+				tempBuilder.append('.');
+			}
+			tempBuilder.append(aPath[i]);
+		}
+		return tempBuilder.toString();
+	}
+
+	/**
+	 * A node in the suffix tree.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	private static class Node {
+
+		/**
+		 * The child nodes, keyed by the path part which is prepended to this nodes' suffix.
+		 */
+		private Map<String, Node> children = new HashMap<String, Node>();
+
+		/**
+		 * All components whose path ends with this nodes' suffix.
+		 */
+		private List<Component> components = new ArrayList<Component>(2);
+
+		/**
+		 * Returns the child for the given path part, creating it if necessary.
+		 * 
+		 * @param aPart
+		 *            the path part
+		 * @return the child node
+		 */
+		public Node getOrCreateChild(String aPart) {
+			Node tempChild = children.get(aPart);
+			if (tempChild == null) {
+				tempChild = new Node();
+				children.put(aPart, tempChild);
+			}
+			return tempChild;
+		}
+	}
+}
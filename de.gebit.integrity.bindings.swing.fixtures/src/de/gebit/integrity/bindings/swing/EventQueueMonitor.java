@@ -0,0 +1,412 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing;
+
+import java.awt.EventQueue;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A watchdog which measures the responsiveness of the event dispatching thread. It periodically posts probes onto the
+ * event queue and records the time until they are run in a {@link LatencyHistogram}. If a probe takes longer than a
+ * threshold, the stack trace of the event dispatching thread is captured, so it can be seen what the application was
+ * doing at that time.<br>
+ * <br>
+ * All samples are attributed to the fixture method which is currently being executed (see
+ * {@link #setCurrentFixtureMethod(String)}). {@link AbstractSwingFixture} reports stalls as extended results of the
+ * fixture method call during which they happened. A summary of all histograms can be obtained via
+ * {@link #createSummary()}, and can be written to a file when the VM shuts down (see {@link #SUMMARY_FILE_PARAMETER}).<br>
+ * <br>
+ * The monitor is disabled by default. Set the system property {@link #MONITOR_PARAMETER} to "true" to enable it.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public final class EventQueueMonitor {
+
+	/**
+	 * Set this system property to "true" to enable the event queue monitor.
+	 */
+	public static final String MONITOR_PARAMETER = "de.gebit.integrity.bindings.swing.eventQueueMonitor";
+
+	/**
+	 * This system property defines the latency in milliseconds above which a probe is considered a stall and the stack
+	 * trace of the event dispatching thread is captured (default is {@link #DEFAULT_THRESHOLD}).
+	 */
+	public static final String THRESHOLD_PARAMETER = "de.gebit.integrity.bindings.swing.eventQueueMonitorThreshold";
+
+	/**
+	 * This system property defines the interval in milliseconds in which probes are posted (default is
+	 * {@link #DEFAULT_INTERVAL}).
+	 */
+	public static final String INTERVAL_PARAMETER = "de.gebit.integrity.bindings.swing.eventQueueMonitorInterval";
+
+	/**
+	 * This system property defines a file to which the summary (see {@link #createSummary()}) is written when the VM
+	 * shuts down. By default, no summary is written.
+	 */
+	public static final String SUMMARY_FILE_PARAMETER = "de.gebit.integrity.bindings.swing.eventQueueMonitorSummaryFile";
+
+	/**
+	 * The default stall threshold in milliseconds.
+	 */
+	public static final int DEFAULT_THRESHOLD = 500;
+
+	/**
+	 * The default probe interval in milliseconds.
+	 */
+	public static final int DEFAULT_INTERVAL = 100;
+
+	/**
+	 * The attribution used for samples which were taken while no fixture method was executing.
+	 */
+	public static final String NO_FIXTURE_METHOD = "(no fixture method)";
+
+	/**
+	 * The maximum number of stalls which are kept until they are reported.
+	 */
+	private static final int MAX_PENDING_STALLS = 100;
+
+	/**
+	 * The singleton instance (null if the monitor is disabled or not started yet).
+	 */
+	private static EventQueueMonitor instance;
+
+	/**
+	 * The stall threshold in nanoseconds.
+	 */
+	private final long threshold;
+
+	/**
+	 * The probe interval in milliseconds.
+	 */
+	private final long interval;
+
+	/**
+	 * The histograms, keyed by fixture method.
+	 */
+	private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+
+	/**
+	 * The stalls which have not been reported yet. Access must be synchronized on the list.
+	 */
+	private final List<Stall> pendingStalls = new LinkedList<Stall>();
+
+	/**
+	 * The fixture method which is currently executing.
+	 */
+	private volatile String currentFixtureMethod;
+
+	/**
+	 * The event dispatching thread, as seen by the last probe.
+	 */
+	private volatile Thread eventDispatchThread;
+
+	/**
+	 * Whether a probe is currently on its way through the event queue.
+	 */
+	private volatile boolean probeInFlight;
+
+	/**
+	 * The time at which the current probe was posted.
+	 */
+	private volatile long probePostTime;
+
+	/**
+	 * The fixture method to which the current probe is attributed.
+	 */
+	private volatile String probeFixtureMethod;
+
+	/**
+	 * The stall which was detected for the current probe, if any.
+	 */
+	private volatile Stall probeStall;
+
+	/**
+	 * The probe which is posted onto the event queue.
+	 */
+	private final Runnable probe = new Runnable() {
+
+		@Override
+		public void run() {
+			long tempLatency = System.nanoTime() - probePostTime;
+			eventDispatchThread = Thread.currentThread();
+			getHistogram(probeFixtureMethod).record(tempLatency);
+
+			Stall tempStall = probeStall;
+			if (tempStall != null) {
+				tempStall.duration = tempLatency;
+				probeStall = null;
+			}
+			probeInFlight = false;
+		}
+	};
+
+	/**
+	 * Creates an instance.
+	 * 
+	 * @param aThreshold
+	 *            the stall threshold in milliseconds
+	 * @param anInterval
+	 *            the probe interval in milliseconds
+	 */
+	private EventQueueMonitor(long aThreshold, long anInterval) {
+		threshold = aThreshold * 1000000L;
+		interval = anInterval;
+	}
+
+	/**
+	 * Whether the monitor is enabled via system property.
+	 * 
+	 * @return true if enabled
+	 */
+	public static boolean isEnabled() {
+		return "true".equalsIgnoreCase(System.getProperty(MONITOR_PARAMETER));
+	}
+
+	/**
+	 * Returns the monitor, starting it on the first call.
+	 * 
+	 * @return the monitor, or null if it is disabled
+	 */
+	public static synchronized EventQueueMonitor getInstance() {
+		if (instance == null && isEnabled()) {
+			instance = new EventQueueMonitor(Long.getLong(THRESHOLD_PARAMETER, DEFAULT_THRESHOLD), Long.getLong(
+					INTERVAL_PARAMETER, DEFAULT_INTERVAL));
+			instance.start();
+		}
+		return instance;
+	}
+
+	/**
+	 * Starts the watchdog thread and registers the shutdown hook which prints the summary.
+	 */
+	private void start() {
+		Thread tempWatchdog = new Thread("Event Queue Monitor") {
+
+			@Override
+			public void run() {
+				while (true) {
+					checkProbe();
+					try {
+						Thread.sleep(interval);
+					} catch (InterruptedException exc) {
+						return;
+					}
+				}
+			}
+		};
+		tempWatchdog.setDaemon(true);
+		tempWatchdog.start();
+
+		final String tempSummaryFile = System.getProperty(SUMMARY_FILE_PARAMETER);
+		if (tempSummaryFile != null && tempSummaryFile.length() > 0) {
+			Runtime.getRuntime().addShutdownHook(new Thread("Event Queue Monitor Summary") {
+
+				@Override
+				public void run() {
+					writeSummary(new File(tempSummaryFile));
+				}
+			});
+		}
+	}
+
+	/**
+	 * Writes the summary (see {@link #createSummary()}) to the given file.
+	 * 
+	 * @param aFile
+	 *            the file (will be overwritten)
+	 */
+	public void writeSummary(File aFile) {
+		try {
+			Writer tempWriter = new OutputStreamWriter(new FileOutputStream(aFile), "UTF-8");
+			try {
+				tempWriter.write(createSummary());
+			} finally {
+				tempWriter.close();
+			}
+		} catch (IOException exc) {
+			exc.printStackTrace();
+		}
+	}
+
+	/**
+	 * Posts a new probe if the last one was processed, or checks whether the current probe has exceeded the threshold.
+	 */
+	private void checkProbe() {
+		if (!probeInFlight) {
+			probeFixtureMethod = currentFixtureMethod;
+			probePostTime = System.nanoTime();
+			probeInFlight = true;
+			EventQueue.invokeLater(probe);
+		} else if (probeStall == null) {
+			long tempElapsed = System.nanoTime() - probePostTime;
+			Thread tempEventDispatchThread = eventDispatchThread;
+			if (tempElapsed > threshold && tempEventDispatchThread != null) {
+				Stall tempStall = new Stall(probeFixtureMethod, tempElapsed, tempEventDispatchThread.getStackTrace());
+				probeStall = tempStall;
+				synchronized (pendingStalls) {
+					pendingStalls.add(tempStall);
+					if (pendingStalls.size() > MAX_PENDING_STALLS) {
+						pendingStalls.remove(0);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the histogram for the given fixture method.
+	 * 
+	 * @param aFixtureMethod
+	 *            the fixture method, or null
+	 * @return the histogram
+	 */
+	private LatencyHistogram getHistogram(String aFixtureMethod) {
+		String tempKey = aFixtureMethod != null ? aFixtureMethod : NO_FIXTURE_METHOD;
+		LatencyHistogram tempHistogram = histograms.get(tempKey);
+		if (tempHistogram == null) {
+			tempHistogram = new LatencyHistogram();
+			histograms.put(tempKey, tempHistogram);
+		}
+		return tempHistogram;
+	}
+
+	/**
+	 * Sets the fixture method to which samples are attributed from now on.
+	 * 
+	 * @param aFixtureMethod
+	 *            the fixture method (for example "SwingButtonFixture#clickButton"), or null if no fixture method is
+	 *            executing
+	 */
+	public void setCurrentFixtureMethod(String aFixtureMethod) {
+		currentFixtureMethod = aFixtureMethod;
+	}
+
+	public String getCurrentFixtureMethod() {
+		return currentFixtureMethod;
+	}
+
+	/**
+	 * Returns and forgets all stalls which were attributed to the given fixture method.
+	 * 
+	 * @param aFixtureMethod
+	 *            the fixture method
+	 * @return the stalls (may be empty)
+	 */
+	public List<Stall> takeStalls(String aFixtureMethod) {
+		List<Stall> tempResult = new ArrayList<Stall>();
+		synchronized (pendingStalls) {
+			Iterator<Stall> tempIterator = pendingStalls.iterator();
+			while (tempIterator.hasNext()) {
+				Stall tempStall = tempIterator.next();
+				if (aFixtureMethod != null && aFixtureMethod.equals(tempStall.getFixtureMethod())) {
+					tempResult.add(tempStall);
+					tempIterator.remove();
+				}
+			}
+		}
+		return tempResult;
+	}
+
+	/**
+	 * Returns a snapshot of all histograms, keyed by fixture method.
+	 * 
+	 * @return the histograms
+	 */
+	public Map<String, LatencyHistogram> getHistograms() {
+		return new TreeMap<String, LatencyHistogram>(histograms);
+	}
+
+	/**
+	 * Creates a human-readable summary of all histograms.
+	 * 
+	 * @return the summary
+	 */
+	public String createSummary() {
+		StringBuilder tempBuilder = new StringBuilder("Event dispatching thread latencies:");
+		for (Entry<String, LatencyHistogram> tempEntry : getHistograms().entrySet()) {
+			tempBuilder.append("\n  " + tempEntry.getKey() + ": " + tempEntry.getValue());
+		}
+		return tempBuilder.toString();
+	}
+
+	/**
+	 * A probe which exceeded the stall threshold.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	public static class Stall {
+
+		/**
+		 * The fixture method to which the stall is attributed.
+		 */
+		private String fixtureMethod;
+
+		/**
+		 * The duration of the stall in nanoseconds. Updated when the probe is finally processed.
+		 */
+		private volatile long duration;
+
+		/**
+		 * The stack trace of the event dispatching thread when the threshold was exceeded.
+		 */
+		private StackTraceElement[] stackTrace;
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param aFixtureMethod
+		 *            the fixture method
+		 * @param aDuration
+		 *            the duration so far
+		 * @param aStackTrace
+		 *            the stack trace of the event dispatching thread
+		 */
+		Stall(String aFixtureMethod, long aDuration, StackTraceElement[] aStackTrace) {
+			fixtureMethod = aFixtureMethod;
+			duration = aDuration;
+			stackTrace = aStackTrace;
+		}
+
+		public String getFixtureMethod() {
+			return fixtureMethod;
+		}
+
+		public long getDuration() {
+			return duration;
+		}
+
+		public StackTraceElement[] getStackTrace() {
+			return stackTrace;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder tempBuilder = new StringBuilder("Event dispatching thread blocked for at least "
+					+ LatencyHistogram.formatMicroseconds(duration / 1000L) + ":");
+			for (StackTraceElement tempElement : stackTrace) {
+				tempBuilder.append("\n\tat " + tempElement);
+			}
+			return tempBuilder.toString();
+		}
+	}
+}
@@ -8,28 +8,139 @@
 package de.gebit.integrity.bindings.swing;
 
 import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InvocationEvent;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * Can be used to synchronize execution of any thread with the AWT Event Queue.
+ * Can be used to synchronize execution of any thread with the AWT Event Queue.<br>
+ * <br>
+ * There is only one instance (see {@link #getInstance()}), which uses a single, pre-allocated marker event. Every
+ * waiting thread draws a sequence number and parks until a marker which was posted after the sequence number had been
+ * drawn has been processed. Threads which start waiting while a marker is already on its way through the queue are
+ * served by a single follow-up marker, so any number of concurrent waiters share one round trip. Waiting does not
+ * allocate any objects.
  * 
  * @author Rene Schneider - initial API and implementation
  * 
  */
 public class EventQueueSynchronizer {
 
-	private static class SyncObject {
+	/**
+	 * The singleton instance.
+	 */
+	private static final EventQueueSynchronizer INSTANCE = new EventQueueSynchronizer();
+
+	/**
+	 * The maximum number of threads which can be woken up directly when the marker has been processed. Additional
+	 * threads will still be served, but they poll in {@link #OVERFLOW_POLL_INTERVAL} steps.
+	 */
+	protected static final int WAITER_SLOTS = 32;
+
+	/**
+	 * The interval in nanoseconds in which threads not fitting into the waiter slots check for completion.
+	 */
+	protected static final long OVERFLOW_POLL_INTERVAL = 1000000L;
+
+	/**
+	 * The highest sequence number drawn by a waiting thread.
+	 */
+	private final AtomicLong requestedSequence = new AtomicLong();
+
+	/**
+	 * The sequence number up to which all waiters have been served.
+	 */
+	private volatile long completedSequence;
+
+	/**
+	 * The sequence number up to which all waiters for an idle event queue have been served.
+	 */
+	private volatile long idleSequence;
+
+	/**
+	 * The number of threads currently waiting for the event queue to become idle.
+	 */
+	private final AtomicInteger idleWaiters = new AtomicInteger();
 
-		/**
-		 * Whether this sync object has been touched.
-		 */
-		private volatile boolean touched;
+	/**
+	 * Whether the marker event is currently on its way through the event queue.
+	 */
+	private final AtomicBoolean markerInFlight = new AtomicBoolean();
 
-		public boolean isTouched() {
-			return touched;
+	/**
+	 * The sequence number which was current when the marker event was posted.
+	 */
+	private volatile long markerSequence;
+
+	/**
+	 * The threads currently waiting.
+	 */
+	private final AtomicReferenceArray<Thread> waiters = new AtomicReferenceArray<Thread>(WAITER_SLOTS);
+
+	/**
+	 * The marker which is run on the event dispatching thread.
+	 */
+	private final Runnable marker = new Runnable() {
+
+		@Override
+		public void run() {
+			long tempSequence = markerSequence;
+			completedSequence = tempSequence;
+			if (Toolkit.getDefaultToolkit().getSystemEventQueue().peekEvent() == null) {
+				idleSequence = tempSequence;
+			}
+			markerInFlight.set(false);
+
+			for (int i = 0; i < WAITER_SLOTS; i++) {
+				Thread tempWaiter = waiters.get(i);
+				if (tempWaiter != null) {
+					LockSupport.unpark(tempWaiter);
+				}
+			}
+
+			long tempRequested = requestedSequence.get();
+			if (tempRequested > completedSequence || (idleWaiters.get() > 0 && tempRequested > idleSequence)) {
+				postMarker();
+			}
 		}
+	};
+
+	/**
+	 * The pre-allocated marker event.
+	 */
+	private final InvocationEvent markerEvent = new InvocationEvent(Toolkit.getDefaultToolkit(), marker);
+
+	/**
+	 * Creates an instance. Separately created instances are fully functional, but they don't share marker round trips
+	 * with the shared instance.
+	 * 
+	 * @deprecated use {@link #getInstance()} instead; this constructor is only kept for compatibility
+	 */
+	@Deprecated
+	public EventQueueSynchronizer() {
+		// prefer the singleton
+	}
+
+	/**
+	 * Returns the synchronizer instance.
+	 * 
+	 * @return the instance
+	 */
+	public static EventQueueSynchronizer getInstance() {
+		return INSTANCE;
+	}
 
-		public void touch() {
-			touched = true;
+	/**
+	 * Posts the marker event, unless it is already on its way through the queue.
+	 */
+	private void postMarker() {
+		if (markerInFlight.compareAndSet(false, true)) {
+			markerSequence = requestedSequence.get();
+			Toolkit.getDefaultToolkit().getSystemEventQueue().postEvent(markerEvent);
 		}
 	}
 
@@ -41,37 +152,112 @@ public class EventQueueSynchronizer {
 	 * @return true if the queue emptied in time, false if the timeout was hit
 	 */
 	public boolean waitForEventQueue(long aTimeout) {
-		final SyncObject syncObject = new SyncObject();
+		return waitForEventQueueNanos(aTimeout * 1000000L);
+	}
+
+	/**
+	 * Waits for the event queue to be emptied or the specified timeout to elapse.
+	 * 
+	 * @param aTimeout
+	 *            the timeout in nanoseconds (0 for infinity)
+	 * @return true if the queue emptied in time, false if the timeout was hit
+	 */
+	public boolean waitForEventQueueNanos(long aTimeout) {
+		return await(false, aTimeout);
+	}
 
-		synchronized (syncObject) {
-			EventQueue.invokeLater(new Runnable() {
+	/**
+	 * Waits until the event queue has actually become idle, that is, until it has processed all pending events and no
+	 * further events have been posted in the meantime, or until the specified timeout has elapsed. In contrast to
+	 * {@link #waitForEventQueue(long)}, this also waits for events which are posted as a result of processing other
+	 * events, no matter how many "generations" of events there are, and returns as soon as the queue has drained.<br>
+	 * <br>
+	 * Note that actions which are scheduled to happen later without posting an event right away (like pending
+	 * {@link javax.swing.Timer}s or running {@link javax.swing.SwingWorker}s) are not visible to the event queue and can
+	 * thus not be waited for. Event queues which have been pushed onto the system event queue are not inspected either.
+	 * 
+	 * @param aTimeout
+	 *            the timeout in milliseconds (0 for infinity)
+	 * @return true if the queue became idle in time, false if the timeout was hit
+	 */
+	public boolean waitForIdle(long aTimeout) {
+		return waitForIdleNanos(aTimeout * 1000000L);
+	}
 
-				@Override
-				public void run() {
-					synchronized (syncObject) {
-						syncObject.touch();
-						syncObject.notifyAll();
+	/**
+	 * Waits until the event queue has actually become idle. See {@link #waitForIdle(long)}.
+	 * 
+	 * @param aTimeout
+	 *            the timeout in nanoseconds (0 for infinity)
+	 * @return true if the queue became idle in time, false if the timeout was hit
+	 */
+	public boolean waitForIdleNanos(long aTimeout) {
+		idleWaiters.incrementAndGet();
+		try {
+			return await(true, aTimeout);
+		} finally {
+			idleWaiters.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Draws a sequence number and waits until it has been served.
+	 * 
+	 * @param anIdleFlag
+	 *            whether to wait for the event queue to become idle
+	 * @param aTimeout
+	 *            the timeout in nanoseconds (0 for infinity)
+	 * @return true if the sequence number was served in time, false if the timeout was hit
+	 */
+	private boolean await(boolean anIdleFlag, long aTimeout) {
+		if (EventQueue.isDispatchThread()) {
+			throw new IllegalStateException("Cannot wait for the event queue on the event dispatching thread");
+		}
+
+		long tempTicket = requestedSequence.incrementAndGet();
+		Thread tempCurrentThread = Thread.currentThread();
+		int tempSlot = -1;
+		for (int i = 0; i < WAITER_SLOTS && tempSlot < 0; i++) {
+			if (waiters.compareAndSet(i, null, tempCurrentThread)) {
+				tempSlot = i;
+			}
+		}
+
+		postMarker();
+
+		boolean tempInterrupted = false;
+		long tempDeadline = System.nanoTime() + aTimeout;
+		try {
+			while ((anIdleFlag ? idleSequence : completedSequence) < tempTicket) {
+				long tempParkTime = tempSlot < 0 ? OVERFLOW_POLL_INTERVAL : 0;
+				if (aTimeout > 0) {
+					long tempLeft = tempDeadline - System.nanoTime();
+					if (tempLeft <= 0) {
+						return false;
 					}
-				}
-			});
-
-			long tempTimeout = aTimeout * 1000000L; // using nanoseconds here
-			long tempStart = System.nanoTime();
-			long tempLeft = tempTimeout;
-			while (!syncObject.isTouched() && (aTimeout == 0 || tempLeft > 0)) {
-				try {
-					if (aTimeout == 0) {
-						syncObject.wait();
-					} else {
-						syncObject.wait(tempLeft / 1000000L);
+					if (tempParkTime == 0 || tempLeft < tempParkTime) {
+						tempParkTime = tempLeft;
 					}
-				} catch (InterruptedException exc) {
-					// ignore
 				}
-				tempLeft = tempTimeout - (System.nanoTime() - tempStart);
-			}
 
-			return syncObject.isTouched();
+				if (tempParkTime > 0) {
+					LockSupport.parkNanos(this, tempParkTime);
+				} else {
+					LockSupport.park(this);
+				}
+
+				if (Thread.interrupted()) {
+					tempInterrupted = true;
+				}
+			}
+			return true;
+		} finally {
+			if (tempSlot >= 0) {
+				waiters.set(tempSlot, null);
+			}
+			if (tempInterrupted) {
+				tempCurrentThread.interrupt();
+			}
 		}
 	}
 
@@ -95,8 +281,11 @@ public class EventQueueSynchronizer {
 	/**
 	 * Waits several times for the event queue to be emptied.
 	 * 
+	 * @param aTimeout
+	 *            the timeout in milliseconds for each wait (0 for infinity)
 	 * @param aNumberOfTimes
 	 *            number of times to wait
+	 * @return true if the queue emptied in time, false if the timeout was hit
 	 */
 	public boolean waitForEventQueueMultipleTimes(int aTimeout, int aNumberOfTimes) {
 		for (int i = 0; i < aNumberOfTimes; i++) {
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies with log-linear buckets: values are recorded in microseconds, with exact buckets for values
+ * below 16 microseconds and eight buckets per power of two above that, so every recorded value is accurate to 12.5%. The
+ * histogram has a fixed size, recording never allocates, and it can be read while another thread records.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The number of linear buckets at the lower end, which each hold exactly one value.
+	 */
+	private static final int LINEAR_BUCKETS = 16;
+
+	/**
+	 * The number of buckets per power of two above the linear buckets.
+	 */
+	private static final int SUB_BUCKETS = 8;
+
+	/**
+	 * The total number of buckets. Values above the range of the last bucket (about 12 days) are recorded in it.
+	 */
+	private static final int BUCKET_COUNT = LINEAR_BUCKETS + 37 * SUB_BUCKETS;
+
+	/**
+	 * The buckets.
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	/**
+	 * The total number of recorded values.
+	 */
+	private final AtomicLong count = new AtomicLong();
+
+	/**
+	 * The sum of all recorded values in microseconds.
+	 */
+	private final AtomicLong sum = new AtomicLong();
+
+	/**
+	 * The largest recorded value in microseconds.
+	 */
+	private volatile long max;
+
+	/**
+	 * Records a value.
+	 * 
+	 * @param aNanoseconds
+	 *            the latency in nanoseconds
+	 */
+	public void record(long aNanoseconds) {
+		long tempMicroseconds = Math.max(0, aNanoseconds / 1000L);
+		buckets.incrementAndGet(getBucketIndex(tempMicroseconds));
+		count.incrementAndGet();
+		sum.addAndGet(tempMicroseconds);
+		if (tempMicroseconds > max) {
+			max = tempMicroseconds;
+		}
+	}
+
+	/**
+	 * Determines the bucket for a value.
+	 * 
+	 * @param aMicroseconds
+	 *            the value
+	 * @return the bucket index
+	 */
+	private static int getBucketIndex(long aMicroseconds) {
+		if (aMicroseconds < LINEAR_BUCKETS) {
+			return (int) aMicroseconds;
+		}
+
+		int tempShift = (63 - Long.numberOfLeadingZeros(aMicroseconds)) - 3;
+		int tempIndex = LINEAR_BUCKETS + (tempShift - 1) * SUB_BUCKETS
+				+ (int) ((aMicroseconds >> tempShift) - SUB_BUCKETS);
+		return Math.min(tempIndex, BUCKET_COUNT - 1);
+	}
+
+	/**
+	 * Determines the smallest value of a bucket.
+	 * 
+	 * @param anIndex
+	 *            the bucket index
+	 * @return the smallest value in microseconds
+	 */
+	private static long getBucketLowerBound(int anIndex) {
+		if (anIndex < LINEAR_BUCKETS) {
+			return anIndex;
+		}
+
+		int tempOffset = anIndex - LINEAR_BUCKETS;
+		int tempShift = tempOffset / SUB_BUCKETS + 1;
+		return ((long) (tempOffset % SUB_BUCKETS + SUB_BUCKETS)) << tempShift;
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 * 
+	 * @return the count
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns the largest recorded value.
+	 * 
+	 * @return the maximum in microseconds
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the mean of all recorded values.
+	 * 
+	 * @return the mean in microseconds
+	 */
+	public long getMean() {
+		long tempCount = count.get();
+		return tempCount > 0 ? sum.get() / tempCount : 0;
+	}
+
+	/**
+	 * Returns the value below which the given percentage of all recorded values lie.
+	 * 
+	 * @param aPercentile
+	 *            the percentile (0 to 100)
+	 * @return the value in microseconds (the lower bound of the respective bucket)
+	 */
+	public long getValueAtPercentile(double aPercentile) {
+		long tempCount = count.get();
+		if (tempCount == 0) {
+			return 0;
+		}
+
+		long tempTarget = Math.max(1, (long) Math.ceil(tempCount * aPercentile / 100.0));
+		long tempSeen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			tempSeen += buckets.get(i);
+			if (tempSeen >= tempTarget) {
+				return Math.min(getBucketLowerBound(i), max);
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + getCount() + ", mean=" + formatMicroseconds(getMean()) + ", p50="
+				+ formatMicroseconds(getValueAtPercentile(50)) + ", p90="
+				+ formatMicroseconds(getValueAtPercentile(90)) + ", p99="
+				+ formatMicroseconds(getValueAtPercentile(99)) + ", max=" + formatMicroseconds(getMax());
+	}
+
+	/**
+	 * Formats a value for display.
+	 * 
+	 * @param aMicroseconds
+	 *            the value in microseconds
+	 * @return the formatted value
+	 */
+	public static String formatMicroseconds(long aMicroseconds) {
+		if (aMicroseconds < 1000) {
+			return aMicroseconds + " us";
+		} else {
+			return String.format("%.1f ms", aMicroseconds / 1000.0);
+		}
+	}
+}
@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing;
+
+import java.awt.Color;
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.KeyboardFocusManager;
+import java.awt.RenderingHints;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.Timer;
+
+/**
+ * Records the most recent states of the windows under test, so that a failure can be analyzed by looking at what
+ * happened before it, not only at the final state. Frames are painted (scaled down) into a fixed number of images which
+ * are allocated once and then reused as a ring buffer, so the memory used is strictly bounded by
+ * <code>frame count * max dimension^2 * 4</code> bytes.<br>
+ * <br>
+ * Frames are recorded by {@link AbstractSwingFixture} after every action run on the event queue, and optionally also
+ * at a fixed rate (see {@link #INTERVAL_PARAMETER}). On failure, the recorded frames are reported as a sequence of
+ * extended result images.<br>
+ * <br>
+ * The recorder is disabled by default; set {@link #FRAMES_PARAMETER} to the number of frames to keep to enable it.
+ * When disabled, {@link #getInstance()} returns null and nothing else is done.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public final class UIFrameRecorder {
+
+	/**
+	 * This system property defines the number of frames to keep. The recorder is enabled if it is set to a value
+	 * larger than zero.
+	 */
+	public static final String FRAMES_PARAMETER = "de.gebit.integrity.bindings.swing.frameRecorder";
+
+	/**
+	 * This system property defines the maximum width and height of a frame in pixels (default is
+	 * {@link #DEFAULT_MAX_DIMENSION}). Windows are scaled down to fit.
+	 */
+	public static final String MAX_DIMENSION_PARAMETER = "de.gebit.integrity.bindings.swing.frameRecorderMaxDimension";
+
+	/**
+	 * This system property defines an interval in milliseconds in which frames are recorded in addition to the frames
+	 * recorded after each action. By default, no frames are recorded at a fixed rate.
+	 */
+	public static final String INTERVAL_PARAMETER = "de.gebit.integrity.bindings.swing.frameRecorderInterval";
+
+	/**
+	 * The default maximum frame dimension.
+	 */
+	public static final int DEFAULT_MAX_DIMENSION = 640;
+
+	/**
+	 * Whether the recorder is enabled. Determined once, so checking for a disabled recorder costs nothing.
+	 */
+	private static final boolean ENABLED = Integer.getInteger(FRAMES_PARAMETER, 0) > 0;
+
+	/**
+	 * The singleton instance (null if the recorder is disabled or not started yet).
+	 */
+	private static UIFrameRecorder instance;
+
+	/**
+	 * The frame images, used as a ring buffer. Only accessed on the event dispatching thread.
+	 */
+	private final BufferedImage[] frames;
+
+	/**
+	 * The used width of each frame image.
+	 */
+	private final int[] frameWidths;
+
+	/**
+	 * The used height of each frame image.
+	 */
+	private final int[] frameHeights;
+
+	/**
+	 * The time each frame was recorded at.
+	 */
+	private final long[] frameTimes;
+
+	/**
+	 * A description of each frame.
+	 */
+	private final String[] frameDescriptions;
+
+	/**
+	 * The maximum frame dimension.
+	 */
+	private final int maxDimension;
+
+	/**
+	 * The index at which the next frame will be recorded.
+	 */
+	private int nextFrame;
+
+	/**
+	 * The number of frames recorded since the last {@link #clear()} (at most the buffer size).
+	 */
+	private int frameCount;
+
+	/**
+	 * Creates an instance.
+	 * 
+	 * @param aFrameCount
+	 *            the number of frames to keep
+	 * @param aMaxDimension
+	 *            the maximum frame dimension
+	 */
+	private UIFrameRecorder(int aFrameCount, int aMaxDimension) {
+		frames = new BufferedImage[aFrameCount];
+		frameWidths = new int[aFrameCount];
+		frameHeights = new int[aFrameCount];
+		frameTimes = new long[aFrameCount];
+		frameDescriptions = new String[aFrameCount];
+		maxDimension = aMaxDimension;
+	}
+
+	/**
+	 * Returns the recorder instance, creating it if necessary.
+	 * 
+	 * @return the recorder, or null if it is disabled
+	 */
+	public static UIFrameRecorder getInstance() {
+		if (!ENABLED) {
+			return null;
+		}
+
+		synchronized (UIFrameRecorder.class) {
+			if (instance == null) {
+				instance = new UIFrameRecorder(Integer.getInteger(FRAMES_PARAMETER, 0), Math.max(1,
+						Integer.getInteger(MAX_DIMENSION_PARAMETER, DEFAULT_MAX_DIMENSION)));
+				int tempInterval = Integer.getInteger(INTERVAL_PARAMETER, 0);
+				if (tempInterval > 0) {
+					instance.startTimer(tempInterval);
+				}
+			}
+			return instance;
+		}
+	}
+
+	/**
+	 * Starts recording the focused window at a fixed rate.
+	 * 
+	 * @param anInterval
+	 *            the interval in milliseconds
+	 */
+	private void startTimer(int anInterval) {
+		final Timer tempTimer = new Timer(anInterval, new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent anEvent) {
+				Window tempWindow = KeyboardFocusManager.getCurrentKeyboardFocusManager().getFocusedWindow();
+				if (tempWindow != null) {
+					recordFrame(tempWindow, "timer");
+				}
+			}
+		});
+		tempTimer.setRepeats(true);
+		EventQueue.invokeLater(new Runnable() {
+
+			@Override
+			public void run() {
+				tempTimer.start();
+			}
+		});
+	}
+
+	/**
+	 * Records the current state of the given window. Must be called on the event dispatching thread.
+	 * 
+	 * @param aWindow
+	 *            the window
+	 * @param aDescription
+	 *            a description of the frame (for example the action after which it was recorded)
+	 */
+	public void recordFrame(Window aWindow, String aDescription) {
+		if (!aWindow.isShowing() || aWindow.getWidth() <= 0 || aWindow.getHeight() <= 0) {
+			return;
+		}
+
+		double tempScalingFactor = Math.min(1.0,
+				(double) maxDimension / (double) Math.max(aWindow.getWidth(), aWindow.getHeight()));
+		int tempWidth = Math.max(1, (int) Math.round(aWindow.getWidth() * tempScalingFactor));
+		int tempHeight = Math.max(1, (int) Math.round(aWindow.getHeight() * tempScalingFactor));
+
+		if (frames[nextFrame] == null) {
+			frames[nextFrame] = new BufferedImage(maxDimension, maxDimension, BufferedImage.TYPE_INT_RGB);
+		}
+
+		Graphics2D tempGraphics = frames[nextFrame].createGraphics();
+		tempGraphics.setClip(0, 0, tempWidth, tempHeight);
+		tempGraphics.setColor(Color.WHITE);
+		tempGraphics.fillRect(0, 0, tempWidth, tempHeight);
+		tempGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+		tempGraphics.scale(tempScalingFactor, tempScalingFactor);
+		aWindow.printAll(tempGraphics);
+		tempGraphics.dispose();
+
+		frameWidths[nextFrame] = tempWidth;
+		frameHeights[nextFrame] = tempHeight;
+		frameTimes[nextFrame] = System.currentTimeMillis();
+		frameDescriptions[nextFrame] = aDescription;
+		nextFrame = (nextFrame + 1) % frames.length;
+		if (frameCount < frames.length) {
+			frameCount++;
+		}
+	}
+
+	/**
+	 * Returns copies of all recorded frames, oldest first. Must be called on the event dispatching thread.
+	 * 
+	 * @return the frames
+	 */
+	public List<Frame> getFrames() {
+		List<Frame> tempResult = new ArrayList<Frame>(frameCount);
+		for (int i = frameCount; i > 0; i--) {
+			int tempIndex = (nextFrame - i + frames.length) % frames.length;
+			BufferedImage tempImage = new BufferedImage(frameWidths[tempIndex], frameHeights[tempIndex],
+					BufferedImage.TYPE_INT_RGB);
+			Graphics2D tempGraphics = tempImage.createGraphics();
+			tempGraphics.drawImage(frames[tempIndex], 0, 0, null);
+			tempGraphics.dispose();
+			tempResult.add(new Frame(tempImage, frameTimes[tempIndex], frameDescriptions[tempIndex]));
+		}
+		return tempResult;
+	}
+
+	/**
+	 * Forgets all recorded frames (the images are kept for reuse). Must be called on the event dispatching thread.
+	 */
+	public void clear() {
+		frameCount = 0;
+		for (int i = 0; i < frameDescriptions.length; i++) {
+			frameDescriptions[i] = null;
+		}
+	}
+
+	/**
+	 * A recorded frame.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	public static final class Frame {
+
+		/**
+		 * The image.
+		 */
+		private final BufferedImage image;
+
+		/**
+		 * The time the frame was recorded at.
+		 */
+		private final long time;
+
+		/**
+		 * The description of the frame.
+		 */
+		private final String description;
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param anImage
+		 *            the image
+		 * @param aTime
+		 *            the time the frame was recorded at
+		 * @param aDescription
+		 *            the description of the frame
+		 */
+		private Frame(BufferedImage anImage, long aTime, String aDescription) {
+			image = anImage;
+			time = aTime;
+			description = aDescription;
+		}
+
+		public BufferedImage getImage() {
+			return image;
+		}
+
+		public long getTime() {
+			return time;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+	}
+}
@@ -0,0 +1,412 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing.authorassist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.gebit.integrity.bindings.swing.authorassist.queries.SwingAuthorAssistComponentQuery.SwingAuthorAssistComponentQueryResult;
+import de.gebit.integrity.bindings.swing.authorassist.queries.SwingAuthorAssistTableColumnQuery.SwingAuthorAssistTableColumnQueryResult;
+import de.gebit.integrity.bindings.swing.authorassist.queries.SwingAuthorAssistTreeItemQuery.SwingAuthorAssistTreeItemQueryResult;
+
+/**
+ * A compact binary encoding for author assist query results, used as {@link SwingAuthorAssistProtocol#CODEC_BINARY}.
+ * Compared to Java serialization, it has no per-class metadata overhead, transfers images as raw PNG bytes and writes
+ * every distinct string only once (later occurrences just reference the first one, which helps a lot with the many
+ * common path prefixes and description fragments in component query results).<br>
+ * <br>
+ * The encoded form starts with a version byte, followed by the number of results and the results themselves, each
+ * prefixed by a type tag. All counts and lengths are written as variable-length integers. Only the result types known
+ * to this class can be encoded; results containing anything else have to be sent using Java serialization (see
+ * {@link #canEncode(Object[])}).
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public final class SwingAuthorAssistBinaryCodec {
+
+	/**
+	 * The current version of the encoding.
+	 */
+	public static final byte VERSION = 1;
+
+	/**
+	 * Type tag for null.
+	 */
+	private static final int TYPE_NULL = 0;
+
+	/**
+	 * Type tag for {@link String}.
+	 */
+	private static final int TYPE_STRING = 1;
+
+	/**
+	 * Type tag for {@link SwingAuthorAssistComponentQueryResult}.
+	 */
+	private static final int TYPE_COMPONENT_RESULT = 2;
+
+	/**
+	 * Type tag for {@link SwingAuthorAssistTableColumnQueryResult}.
+	 */
+	private static final int TYPE_TABLE_COLUMN_RESULT = 3;
+
+	/**
+	 * Type tag for {@link SwingAuthorAssistTreeItemQueryResult}.
+	 */
+	private static final int TYPE_TREE_ITEM_RESULT = 4;
+
+	/**
+	 * String reference denoting null.
+	 */
+	private static final int STRING_NULL = 0;
+
+	/**
+	 * String reference denoting a new string, which follows as UTF-8 bytes. All other references point into the string
+	 * table (offset by {@link #STRING_TABLE_OFFSET}).
+	 */
+	private static final int STRING_LITERAL = 1;
+
+	/**
+	 * The offset of string table references.
+	 */
+	private static final int STRING_TABLE_OFFSET = 2;
+
+	/**
+	 * The charset used for strings.
+	 */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Private constructor; this class has only static methods.
+	 */
+	private SwingAuthorAssistBinaryCodec() {
+		// only static methods
+	}
+
+	/**
+	 * Checks whether the given results can be encoded by this codec.
+	 * 
+	 * @param someResults
+	 *            the results
+	 * @return true if all results are of supported types
+	 */
+	public static boolean canEncode(Object[] someResults) {
+		for (Object tempResult : someResults) {
+			if (tempResult != null && !(tempResult instanceof String)
+					&& !(tempResult instanceof SwingAuthorAssistComponentQueryResult)
+					&& !(tempResult instanceof SwingAuthorAssistTableColumnQueryResult)
+					&& !(tempResult instanceof SwingAuthorAssistTreeItemQueryResult)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Encodes the given results.
+	 * 
+	 * @param someResults
+	 *            the results (must be encodable, see {@link #canEncode(Object[])})
+	 * @return the encoded form
+	 * @throws IOException
+	 */
+	public static byte[] encode(Object[] someResults) throws IOException {
+		ByteArrayOutputStream tempByteStream = new ByteArrayOutputStream();
+		Encoder tempEncoder = new Encoder(new DataOutputStream(tempByteStream));
+		tempEncoder.output.writeByte(VERSION);
+		tempEncoder.writeVarInt(someResults.length);
+		for (Object tempResult : someResults) {
+			tempEncoder.writeResult(tempResult);
+		}
+		tempEncoder.output.flush();
+		return tempByteStream.toByteArray();
+	}
+
+	/**
+	 * Decodes results.
+	 * 
+	 * @param someBytes
+	 *            the encoded form
+	 * @return the results
+	 * @throws IOException
+	 *             if the data is malformed or was encoded using an unsupported version
+	 */
+	public static Object[] decode(byte[] someBytes) throws IOException {
+		Decoder tempDecoder = new Decoder(new DataInputStream(new ByteArrayInputStream(someBytes)));
+		byte tempVersion = tempDecoder.input.readByte();
+		if (tempVersion != VERSION) {
+			throw new IOException("Unsupported author assist result encoding version " + tempVersion);
+		}
+		int tempCount = tempDecoder.readVarInt();
+		Object[] tempResults = new Object[tempCount];
+		for (int i = 0; i < tempCount; i++) {
+			tempResults[i] = tempDecoder.readResult();
+		}
+		return tempResults;
+	}
+
+	/**
+	 * Encodes results into a stream.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	private static class Encoder {
+
+		/**
+		 * The target stream.
+		 */
+		private DataOutputStream output;
+
+		/**
+		 * The strings written so far, mapped to their string table index.
+		 */
+		private Map<String, Integer> stringTable = new HashMap<String, Integer>();
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param anOutput
+		 *            the target stream
+		 */
+		Encoder(DataOutputStream anOutput) {
+			output = anOutput;
+		}
+
+		/**
+		 * Writes a single result, prefixed by its type tag.
+		 * 
+		 * @param aResult
+		 *            the result
+		 * @throws IOException
+		 */
+		public void writeResult(Object aResult) throws IOException {
+			if (aResult == null) {
+				writeVarInt(TYPE_NULL);
+			} else if (aResult instanceof String) {
+				writeVarInt(TYPE_STRING);
+				writeString((String) aResult);
+			} else if (aResult instanceof SwingAuthorAssistComponentQueryResult) {
+				SwingAuthorAssistComponentQueryResult tempResult = (SwingAuthorAssistComponentQueryResult) aResult;
+				writeVarInt(TYPE_COMPONENT_RESULT);
+				writeString(tempResult.getLongPath());
+				writeString(tempResult.getShortPath());
+				writeString(tempResult.getHtmlDescriptionWithoutImage());
+				writeString(tempResult.getPlainDescription());
+				writeBytes(tempResult.getImageData());
+				if (tempResult.getImageData() != null && tempResult.getImageData().length > 0) {
+					writeVarInt(tempResult.getImageWidth());
+					writeVarInt(tempResult.getImageHeight());
+				}
+			} else if (aResult instanceof SwingAuthorAssistTableColumnQueryResult) {
+				SwingAuthorAssistTableColumnQueryResult tempResult = (SwingAuthorAssistTableColumnQueryResult) aResult;
+				writeVarInt(TYPE_TABLE_COLUMN_RESULT);
+				writeString(tempResult.getTechnicalColumnName());
+				writeString(tempResult.getColumnName());
+			} else if (aResult instanceof SwingAuthorAssistTreeItemQueryResult) {
+				SwingAuthorAssistTreeItemQueryResult tempResult = (SwingAuthorAssistTreeItemQueryResult) aResult;
+				writeVarInt(TYPE_TREE_ITEM_RESULT);
+				writeString(tempResult.getItemPath());
+				output.writeByte((tempResult.isVisible() ? 1 : 0) | (tempResult.isSelected() ? 2 : 0));
+			} else {
+				throw new IOException("Cannot encode results of type " + aResult.getClass().getName());
+			}
+		}
+
+		/**
+		 * Writes a string, using the string table if the same string was written before.
+		 * 
+		 * @param aString
+		 *            the string (may be null)
+		 * @throws IOException
+		 */
+		public void writeString(String aString) throws IOException {
+			if (aString == null) {
+				writeVarInt(STRING_NULL);
+				return;
+			}
+
+			Integer tempIndex = stringTable.get(aString);
+			if (tempIndex != null) {
+				writeVarInt(tempIndex + STRING_TABLE_OFFSET);
+			} else {
+				stringTable.put(aString, stringTable.size());
+				writeVarInt(STRING_LITERAL);
+				writeBytes(aString.getBytes(UTF8));
+			}
+		}
+
+		/**
+		 * Writes a length-prefixed byte array. Null is written as an empty array.
+		 * 
+		 * @param someBytes
+		 *            the bytes (may be null)
+		 * @throws IOException
+		 */
+		public void writeBytes(byte[] someBytes) throws IOException {
+			if (someBytes == null) {
+				writeVarInt(0);
+			} else {
+				writeVarInt(someBytes.length);
+				output.write(someBytes);
+			}
+		}
+
+		/**
+		 * Writes a non-negative integer using seven bits per byte.
+		 * 
+		 * @param aValue
+		 *            the value
+		 * @throws IOException
+		 */
+		public void writeVarInt(int aValue) throws IOException {
+			int tempValue = aValue;
+			while ((tempValue & ~0x7F) != 0) {
+				output.writeByte((tempValue & 0x7F) | 0x80);
+				tempValue >>>= 7;
+			}
+			output.writeByte(tempValue);
+		}
+	}
+
+	/**
+	 * Decodes results from a stream.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	private static class Decoder {
+
+		/**
+		 * The source stream.
+		 */
+		private DataInputStream input;
+
+		/**
+		 * The strings read so far, in the order of their string table index.
+		 */
+		private List<String> stringTable = new ArrayList<String>();
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param anInput
+		 *            the source stream
+		 */
+		Decoder(DataInputStream anInput) {
+			input = anInput;
+		}
+
+		/**
+		 * Reads a single result.
+		 * 
+		 * @return the result
+		 * @throws IOException
+		 */
+		public Object readResult() throws IOException {
+			int tempType = readVarInt();
+			switch (tempType) {
+			case TYPE_NULL:
+				return null;
+			case TYPE_STRING:
+				return readString();
+			case TYPE_COMPONENT_RESULT:
+				String tempLongPath = readString();
+				String tempShortPath = readString();
+				String tempHtmlDescription = readString();
+				String tempPlainDescription = readString();
+				byte[] tempImageData = readBytes();
+				if (tempImageData.length == 0) {
+					return new SwingAuthorAssistComponentQueryResult(tempLongPath, tempShortPath, tempHtmlDescription,
+							tempPlainDescription);
+				}
+				int tempImageWidth = readVarInt();
+				int tempImageHeight = readVarInt();
+				return new SwingAuthorAssistComponentQueryResult(tempLongPath, tempShortPath, tempHtmlDescription,
+						tempPlainDescription, tempImageData, tempImageWidth, tempImageHeight);
+			case TYPE_TABLE_COLUMN_RESULT:
+				String tempTechnicalColumnName = readString();
+				return new SwingAuthorAssistTableColumnQueryResult(tempTechnicalColumnName, readString());
+			case TYPE_TREE_ITEM_RESULT:
+				String tempItemPath = readString();
+				int tempFlags = input.readUnsignedByte();
+				return new SwingAuthorAssistTreeItemQueryResult(tempItemPath, (tempFlags & 1) != 0,
+						(tempFlags & 2) != 0);
+			default:
+				throw new IOException("Unknown result type " + tempType);
+			}
+		}
+
+		/**
+		 * Reads a string, resolving string table references.
+		 * 
+		 * @return the string (may be null)
+		 * @throws IOException
+		 */
+		public String readString() throws IOException {
+			int tempReference = readVarInt();
+			if (tempReference == STRING_NULL) {
+				return null;
+			} else if (tempReference == STRING_LITERAL) {
+				String tempString = new String(readBytes(), UTF8);
+				stringTable.add(tempString);
+				return tempString;
+			} else {
+				int tempIndex = tempReference - STRING_TABLE_OFFSET;
+				if (tempIndex >= stringTable.size()) {
+					throw new IOException("Invalid string reference " + tempReference);
+				}
+				return stringTable.get(tempIndex);
+			}
+		}
+
+		/**
+		 * Reads a length-prefixed byte array.
+		 * 
+		 * @return the bytes
+		 * @throws IOException
+		 */
+		public byte[] readBytes() throws IOException {
+			int tempLength = readVarInt();
+			if (tempLength < 0 || tempLength > SwingAuthorAssistProtocol.MAX_PAYLOAD_SIZE) {
+				throw new IOException("Invalid length " + tempLength);
+			}
+			byte[] tempBytes = new byte[tempLength];
+			input.readFully(tempBytes);
+			return tempBytes;
+		}
+
+		/**
+		 * Reads a variable-length integer.
+		 * 
+		 * @return the value
+		 * @throws IOException
+		 */
+		public int readVarInt() throws IOException {
+			int tempValue = 0;
+			for (int tempShift = 0; tempShift < 32; tempShift += 7) {
+				int tempByte = input.readUnsignedByte();
+				tempValue |= (tempByte & 0x7F) << tempShift;
+				if ((tempByte & 0x80) == 0) {
+					return tempValue;
+				}
+			}
+			throw new IOException("Malformed variable-length integer");
+		}
+	}
+}
@@ -0,0 +1,484 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing.authorassist;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.gebit.integrity.bindings.swing.authorassist.queries.AbstractSwingAuthorAssistQuery;
+
+/**
+ * The client side of the {@link SwingAuthorAssistServer}. A single connection to the server is kept open and shared by
+ * all queries, which are multiplexed on it using request IDs (see {@link SwingAuthorAssistProtocol}). This avoids the
+ * cost of establishing a new connection for every query, which matters since the editor fires queries at a high rate
+ * while the user is typing.<br>
+ * <br>
+ * If the connection breaks (for example because the application under test was restarted), it is transparently
+ * re-established on the next query.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public class SwingAuthorAssistClient {
+
+	/**
+	 * The client instances, one per classloader. The clients only reference their classloader weakly, so the entries
+	 * don't keep the classloaders alive.
+	 */
+	private static final Map<ClassLoader, SwingAuthorAssistClient> INSTANCES = new WeakHashMap<ClassLoader, SwingAuthorAssistClient>();
+
+	/**
+	 * All clients created so far and not closed via {@link #closeInstance(ClassLoader)}. Used to close the connections
+	 * of clients whose classloader has been garbage collected, since those would otherwise be kept open by their reader
+	 * threads.
+	 */
+	private static final List<SwingAuthorAssistClient> OPEN_INSTANCES = new ArrayList<SwingAuthorAssistClient>();
+
+	/**
+	 * The connect timeout in msecs.
+	 */
+	protected static final int CONNECT_TIMEOUT = 2000;
+
+	/**
+	 * The classloader to use for response deserialization. Referenced weakly, since it is the key of this client in
+	 * {@link #INSTANCES}.
+	 */
+	private final WeakReference<ClassLoader> classLoader;
+
+	/**
+	 * Generates the request IDs.
+	 */
+	private final AtomicInteger requestIdGenerator = new AtomicInteger();
+
+	/**
+	 * The current connection (null if not connected).
+	 */
+	private Connection connection;
+
+	/**
+	 * Creates a new instance. Use {@link #getInstance(ClassLoader)} to get a shared client.
+	 * 
+	 * @param aClassLoader
+	 *            the classloader to use for response deserialization
+	 */
+	protected SwingAuthorAssistClient(ClassLoader aClassLoader) {
+		classLoader = new WeakReference<ClassLoader>(aClassLoader);
+	}
+
+	/**
+	 * Returns the shared client for the given classloader.
+	 * 
+	 * @param aClassLoader
+	 *            the classloader to use for response deserialization
+	 * @return the client
+	 */
+	public static synchronized SwingAuthorAssistClient getInstance(ClassLoader aClassLoader) {
+		SwingAuthorAssistClient tempClient = INSTANCES.get(aClassLoader);
+		if (tempClient == null) {
+			closeOrphanedInstances();
+			tempClient = new SwingAuthorAssistClient(aClassLoader);
+			INSTANCES.put(aClassLoader, tempClient);
+			OPEN_INSTANCES.add(tempClient);
+		}
+		return tempClient;
+	}
+
+	/**
+	 * Closes and forgets the shared client for the given classloader, if there is one. Should be called when the
+	 * classloader is about to be discarded.
+	 * 
+	 * @param aClassLoader
+	 *            the classloader
+	 */
+	public static synchronized void closeInstance(ClassLoader aClassLoader) {
+		SwingAuthorAssistClient tempClient = INSTANCES.remove(aClassLoader);
+		if (tempClient != null) {
+			OPEN_INSTANCES.remove(tempClient);
+			tempClient.close();
+		}
+	}
+
+	/**
+	 * Closes the clients whose classloader has been garbage collected.
+	 */
+	private static void closeOrphanedInstances() {
+		Iterator<SwingAuthorAssistClient> tempIterator = OPEN_INSTANCES.iterator();
+		while (tempIterator.hasNext()) {
+			SwingAuthorAssistClient tempClient = tempIterator.next();
+			if (tempClient.classLoader.get() == null) {
+				tempIterator.remove();
+				tempClient.close();
+			}
+		}
+	}
+
+	/**
+	 * Creates the socket for communication with the {@link SwingAuthorAssistServer}.
+	 * 
+	 * @return the connected socket
+	 * @throws IOException
+	 */
+	protected Socket createSocket() throws IOException {
+		Socket tempSocket = new Socket();
+		tempSocket.setTcpNoDelay(true);
+		tempSocket.connect(new InetSocketAddress(SwingAuthorAssistServer.DEFAULT_HOST,
+				SwingAuthorAssistServer.DEFAULT_PORT), CONNECT_TIMEOUT);
+		return tempSocket;
+	}
+
+	/**
+	 * Returns the current connection, establishing a new one if necessary.
+	 * 
+	 * @return the connection
+	 * @throws IOException
+	 */
+	protected synchronized Connection getConnection() throws IOException {
+		if (connection == null || connection.isClosed()) {
+			connection = new Connection(createSocket());
+			connection.start();
+		}
+		return connection;
+	}
+
+	/**
+	 * Sends a query to the server and waits for the result. Since the server streams results in chunks, the results
+	 * received so far are returned if the query times out.
+	 * 
+	 * @param aQuery
+	 *            the query
+	 * @param aTimeout
+	 *            the maximum time to wait for the complete result in msecs
+	 * @return the (possibly partial) result, or null if the query timed out before any results arrived
+	 * @throws IOException
+	 *             if the server could not be reached or reported an error
+	 */
+	public Object[] query(AbstractSwingAuthorAssistQuery aQuery, long aTimeout) throws IOException {
+		int tempRequestId = requestIdGenerator.incrementAndGet();
+		ByteBuffer tempFrame = SwingAuthorAssistProtocol.createFrame(tempRequestId,
+				SwingAuthorAssistProtocol.FRAME_REQUEST, SwingAuthorAssistProtocol.CODEC_JAVA_SERIALIZATION,
+				SwingAuthorAssistProtocol.serialize(aQuery));
+
+		PendingRequest tempRequest = new PendingRequest();
+		Connection tempConnection = getConnection();
+		try {
+			tempConnection.sendRequest(tempRequestId, tempRequest, tempFrame);
+		} catch (IOException exc) {
+			// The connection may have been stale (server restarted); retry once with a fresh one
+			tempFrame.rewind();
+			tempConnection = getConnection();
+			tempConnection.sendRequest(tempRequestId, tempRequest, tempFrame);
+		}
+
+		try {
+			if (!tempRequest.latch.await(aTimeout, TimeUnit.MILLISECONDS)) {
+				tempConnection.cancelRequest(tempRequestId);
+				return tempRequest.getPartialResults();
+			}
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			tempConnection.cancelRequest(tempRequestId);
+			return tempRequest.getPartialResults();
+		}
+
+		if (tempRequest.error != null) {
+			throw tempRequest.error;
+		}
+		return tempRequest.getPartialResults();
+	}
+
+	/**
+	 * Closes the connection, if one is open. It will be re-established on the next query.
+	 */
+	public synchronized void close() {
+		if (connection != null) {
+			connection.close();
+			connection = null;
+		}
+	}
+
+	/**
+	 * Handles an incoming frame.
+	 * 
+	 * @param aRequest
+	 *            the request the frame belongs to
+	 * @param aFrameType
+	 *            the frame type
+	 * @param aCodec
+	 *            the codec of the payload
+	 * @param aPayload
+	 *            the payload
+	 * @return true if the request is complete
+	 */
+	protected boolean handleFrame(PendingRequest aRequest, byte aFrameType, byte aCodec, byte[] aPayload) {
+		try {
+			Object tempPayload;
+			if (aCodec == SwingAuthorAssistProtocol.CODEC_BINARY) {
+				tempPayload = SwingAuthorAssistBinaryCodec.decode(aPayload);
+			} else {
+				tempPayload = SwingAuthorAssistProtocol.deserialize(aPayload, classLoader.get());
+			}
+
+			if (aFrameType == SwingAuthorAssistProtocol.FRAME_CHUNK) {
+				aRequest.addResults((Object[]) tempPayload);
+				return false;
+			} else if (aFrameType == SwingAuthorAssistProtocol.FRAME_RESPONSE) {
+				aRequest.addResults((Object[]) tempPayload);
+			} else {
+				aRequest.error = new IOException("Author assist server reported an error: " + tempPayload);
+			}
+		} catch (ClassNotFoundException exc) {
+			aRequest.error = new IOException(exc);
+		} catch (IOException exc) {
+			aRequest.error = exc;
+		}
+		aRequest.latch.countDown();
+		return true;
+	}
+
+	/**
+	 * A request waiting for its response.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	protected static class PendingRequest {
+
+		/**
+		 * Released when the response has arrived.
+		 */
+		private final CountDownLatch latch = new CountDownLatch(1);
+
+		/**
+		 * The results received so far. Access must be synchronized on the list.
+		 */
+		private final List<Object> results = new ArrayList<Object>();
+
+		/**
+		 * Whether any results (even an empty final response) have been received.
+		 */
+		private volatile boolean resultsReceived;
+
+		/**
+		 * The error, if one occurred.
+		 */
+		private volatile IOException error;
+
+		/**
+		 * Adds results.
+		 * 
+		 * @param someResults
+		 *            the results
+		 */
+		public void addResults(Object[] someResults) {
+			synchronized (results) {
+				results.addAll(Arrays.asList(someResults));
+				resultsReceived = true;
+			}
+		}
+
+		/**
+		 * Returns the results received so far.
+		 * 
+		 * @return the results, or null if none have been received yet
+		 */
+		public Object[] getPartialResults() {
+			synchronized (results) {
+				return resultsReceived ? results.toArray() : null;
+			}
+		}
+	}
+
+	/**
+	 * A connection to the server. Frames are written by the querying threads and read by a dedicated daemon thread,
+	 * which dispatches the responses to the waiting requests.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	protected class Connection extends Thread {
+
+		/**
+		 * The socket.
+		 */
+		private Socket socket;
+
+		/**
+		 * The output stream. Writes must be synchronized on this stream.
+		 */
+		private OutputStream outputStream;
+
+		/**
+		 * Whether the connection is closed.
+		 */
+		private volatile boolean closed;
+
+		/**
+		 * The requests which have been sent on this connection, but not yet answered or abandoned.
+		 */
+		private final Map<Integer, PendingRequest> pendingRequests = new ConcurrentHashMap<Integer, PendingRequest>();
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param aSocket
+		 *            the connected socket
+		 * @throws IOException
+		 */
+		public Connection(Socket aSocket) throws IOException {
+			super("Author Assist Client");
+			setDaemon(true);
+			socket = aSocket;
+			outputStream = new BufferedOutputStream(aSocket.getOutputStream());
+		}
+
+		/**
+		 * Whether the connection is closed.
+		 * 
+		 * @return true if closed
+		 */
+		public boolean isClosed() {
+			return closed;
+		}
+
+		/**
+		 * Sends a request frame and registers the request, so the responses are dispatched to it.
+		 * 
+		 * @param aRequestId
+		 *            the request ID
+		 * @param aRequest
+		 *            the request
+		 * @param aFrame
+		 *            the frame
+		 * @throws IOException
+		 */
+		public void sendRequest(int aRequestId, PendingRequest aRequest, ByteBuffer aFrame) throws IOException {
+			pendingRequests.put(aRequestId, aRequest);
+			try {
+				send(aFrame);
+			} catch (IOException exc) {
+				pendingRequests.remove(aRequestId);
+				throw exc;
+			}
+		}
+
+		/**
+		 * Abandons a request. The server is told to stop processing it; any late responses are dropped.
+		 * 
+		 * @param aRequestId
+		 *            the request ID
+		 */
+		public void cancelRequest(int aRequestId) {
+			if (pendingRequests.remove(aRequestId) != null) {
+				try {
+					send(SwingAuthorAssistProtocol.createFrame(aRequestId, SwingAuthorAssistProtocol.FRAME_CANCEL,
+							SwingAuthorAssistProtocol.CODEC_JAVA_SERIALIZATION, new byte[0]));
+				} catch (IOException exc) {
+					// the connection is gone, and with it the request on the server side
+				}
+			}
+		}
+
+		/**
+		 * Fails all requests pending on this connection. Called when the connection breaks.
+		 * 
+		 * @param anError
+		 *            the cause
+		 */
+		protected void failPendingRequests(IOException anError) {
+			for (PendingRequest tempRequest : pendingRequests.values()) {
+				tempRequest.error = anError;
+				tempRequest.latch.countDown();
+			}
+			pendingRequests.clear();
+		}
+
+		/**
+		 * Sends a frame.
+		 * 
+		 * @param aFrame
+		 *            the frame
+		 * @throws IOException
+		 */
+		public void send(ByteBuffer aFrame) throws IOException {
+			try {
+				synchronized (outputStream) {
+					outputStream.write(aFrame.array(), aFrame.position(), aFrame.remaining());
+					outputStream.flush();
+				}
+			} catch (IOException exc) {
+				close();
+				throw exc;
+			}
+		}
+
+		/**
+		 * Closes the connection.
+		 */
+		public void close() {
+			closed = true;
+			try {
+				socket.close();
+			} catch (IOException exc) {
+				// ignoring close errors
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				DataInputStream tempInputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				while (!closed) {
+					int tempRequestId = tempInputStream.readInt();
+					byte tempFrameType = tempInputStream.readByte();
+					byte tempCodec = tempInputStream.readByte();
+					int tempLength = tempInputStream.readInt();
+					if (tempLength < 0 || tempLength > SwingAuthorAssistProtocol.MAX_PAYLOAD_SIZE) {
+						throw new IOException("Invalid frame length " + tempLength);
+					}
+					byte[] tempPayload = new byte[tempLength];
+					tempInputStream.readFully(tempPayload);
+
+					// Late responses to abandoned requests are simply dropped
+					PendingRequest tempRequest = pendingRequests.get(tempRequestId);
+					if (tempRequest != null && handleFrame(tempRequest, tempFrameType, tempCodec, tempPayload)) {
+						pendingRequests.remove(tempRequestId);
+					}
+				}
+			} catch (EOFException exc) {
+				failPendingRequests(new IOException("Connection closed by author assist server"));
+			} catch (IOException exc) {
+				// If the connection was closed on our side, the requests are either retried or abandoned anyway
+				if (!closed) {
+					failPendingRequests(exc);
+				}
+			} finally {
+				close();
+			}
+		}
+	}
+}
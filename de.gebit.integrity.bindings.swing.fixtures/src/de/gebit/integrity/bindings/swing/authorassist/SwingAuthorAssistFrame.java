@@ -11,24 +11,22 @@ import java.awt.AWTEvent;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
-import java.awt.Container;
 import java.awt.Dialog;
 import java.awt.Dimension;
 import java.awt.EventQueue;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.awt.Point;
 import java.awt.Toolkit;
 import java.awt.Window;
 import java.awt.event.ActionEvent;
+import java.awt.event.AWTEventListener;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Collections;
 
 import javax.swing.JButton;
 import javax.swing.JComponent;
@@ -36,11 +34,13 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import javax.swing.border.Border;
 import javax.swing.border.LineBorder;
 import javax.swing.border.TitledBorder;
 
 import de.gebit.integrity.bindings.swing.AbstractSwingComponentHandler;
+import de.gebit.integrity.bindings.swing.AbstractSwingComponentHandler.PathInfo;
 
 /**
  * The Frame used to display the author assist tools. These tools provide useful functionality during test editing, such
@@ -105,10 +105,9 @@ public class SwingAuthorAssistFrame extends JFrame {
 	protected JTextField identificationClassField;
 
 	/**
-	 * Thread used to inject component mouse listeners into all components which are required for identification
-	 * purposes.
+	 * The global mouse listener used for identification purposes. Non-null while identification mode is enabled.
 	 */
-	protected ComponentInjectionThread identificationInjectionThread;
+	protected AuthorAssistMouseListener identificationListener;
 
 	/**
 	 * Flag to store whether the event queue has been replaced with the {@link SwallowingEventQueue}.
@@ -121,11 +120,6 @@ public class SwingAuthorAssistFrame extends JFrame {
 	 */
 	private Object closeSync = new Object();
 
-	/**
-	 * Map holding all created identification mouse listeners.
-	 */
-	protected Map<Component, AuthorAssistComponentListener> mouseListenersCreated = new HashMap<Component, AuthorAssistComponentListener>();
-
 	/**
 	 * Flag whether the identification feature is currently in "frozen" selection mode.
 	 */
@@ -283,15 +277,13 @@ public class SwingAuthorAssistFrame extends JFrame {
 
 			@Override
 			public void actionPerformed(ActionEvent anEvent) {
-				if (identificationInjectionThread != null) {
+				if (identificationListener != null) {
 					((SwallowingEventQueue) Toolkit.getDefaultToolkit().getSystemEventQueue())
 							.setAuthorAssistFrame(null);
-					identificationInjectionThread.kill();
-					identificationInjectionThread = null;
+					removeIdentificationListener();
 					identificationToggleButton.setText("Enable");
 				} else {
-					identificationInjectionThread = new ComponentInjectionThread();
-					identificationInjectionThread.start();
+					addIdentificationListener();
 					identificationToggleButton.setText("Disable");
 					((SwallowingEventQueue) Toolkit.getDefaultToolkit().getSystemEventQueue())
 							.setAuthorAssistFrame(SwingAuthorAssistFrame.this);
@@ -348,8 +340,8 @@ public class SwingAuthorAssistFrame extends JFrame {
 			autoCompleteServer.shutDown();
 		}
 
-		if (identificationInjectionThread != null) {
-			identificationInjectionThread.kill();
+		if (identificationListener != null) {
+			removeIdentificationListener();
 		}
 
 		synchronized (closeSync) {
@@ -358,49 +350,25 @@ public class SwingAuthorAssistFrame extends JFrame {
 	}
 
 	/**
-	 * Inject component mouse listeners (for identification) into all components in all windows, except the components
-	 * of the author assist window itself.
+	 * Registers the global mouse listener used for identification. A single listener on the toolkit sees the mouse
+	 * events of all components, including those created after identification mode was enabled, so there's no need to
+	 * attach listeners to individual components.
 	 */
-	protected void injectComponentListeners() {
-		for (Window tempWindow : Window.getWindows()) {
-			if (tempWindow != this) {
-				injectListeners(tempWindow);
-			}
-		}
+	protected void addIdentificationListener() {
+		identificationListener = new AuthorAssistMouseListener();
+		Toolkit.getDefaultToolkit().addAWTEventListener(identificationListener,
+				AWTEvent.MOUSE_EVENT_MASK | AWTEvent.MOUSE_MOTION_EVENT_MASK);
 	}
 
 	/**
-	 * Removes the component mouse listeners from all components where listeners have been added.
+	 * Unregisters the global mouse listener used for identification and clears the current identification.
 	 */
-	protected void cleanupComponentListeners() {
+	protected void removeIdentificationListener() {
+		Toolkit.getDefaultToolkit().removeAWTEventListener(identificationListener);
+		identificationListener = null;
+
 		unfreezeIdentification();
 		clearIdentification();
-
-		for (Entry<Component, AuthorAssistComponentListener> tempEntry : mouseListenersCreated.entrySet()) {
-			tempEntry.getValue().remove();
-		}
-		mouseListenersCreated.clear();
-	}
-
-	/**
-	 * Inject listeners in all components within the given container. This will recurse through the whole component
-	 * hierarchy.
-	 * 
-	 * @param aContainer
-	 *            the container
-	 */
-	protected void injectListeners(Container aContainer) {
-		for (final Component tempComponent : aContainer.getComponents()) {
-			if (!mouseListenersCreated.containsKey(tempComponent)) {
-				AuthorAssistComponentListener tempNewListener = new AuthorAssistComponentListener(tempComponent);
-				tempNewListener.attach();
-				mouseListenersCreated.put(tempComponent, tempNewListener);
-			}
-
-			if (tempComponent instanceof Container) {
-				injectListeners((Container) tempComponent);
-			}
-		}
 	}
 
 	/**
@@ -438,9 +406,11 @@ public class SwingAuthorAssistFrame extends JFrame {
 				aComponent.setBorder(new LineBorder(Color.RED, 1));
 			}
 
-			String tempFullPath = swingComponentHandler.createUniquifiedComponentPath(aComponent);
+			PathInfo tempPathInfo = swingComponentHandler.createComponentPathInfos(
+					Collections.singletonList(aComponent)).get(aComponent);
+			String tempFullPath = tempPathInfo.getUniquifiedPath();
 			if (tempFullPath != null) {
-				String tempShortestPath = swingComponentHandler.createShortestComponentPath(aComponent);
+				String tempShortestPath = tempPathInfo.getShortestPath();
 				identificationFullPathField.setText(tempFullPath);
 				identificationShortPathField.setText(tempShortestPath);
 			} else {
@@ -546,119 +516,44 @@ public class SwingAuthorAssistFrame extends JFrame {
 	}
 
 	/**
-	 * The component listener.
+	 * The global mouse listener used for identification. It determines the component under the mouse pointer from the
+	 * position of each mouse event (events are only delivered to components which listen for them, so the event
+	 * source is not necessarily the component the mouse is over) and identifies it. Events in the author assist frame
+	 * itself are ignored. Since the listener is invoked on the event dispatching thread, identification is done there
+	 * as well.
 	 * 
 	 * 
 	 * @author Rene Schneider - initial API and implementation
 	 * 
 	 */
-	protected class AuthorAssistComponentListener implements MouseListener {
-
-		/**
-		 * The component to which this listener was added.
-		 */
-		private Component component;
-
-		/**
-		 * Creates a new instance.
-		 * 
-		 * @param aComponent
-		 *            the component to which this listener will be added
-		 */
-		public AuthorAssistComponentListener(Component aComponent) {
-			component = aComponent;
-		}
-
-		/**
-		 * Remove the listener from its component.
-		 */
-		public void remove() {
-			component.removeMouseListener(this);
-		}
-
-		/**
-		 * Adds the listener to its component.
-		 */
-		public void attach() {
-			component.addMouseListener(this);
-		}
+	protected class AuthorAssistMouseListener implements AWTEventListener {
 
 		@Override
-		public void mouseReleased(MouseEvent anEvent) {
-			anEvent.consume();
-		}
-
-		@Override
-		public void mousePressed(MouseEvent anEvent) {
-			anEvent.consume();
-		}
-
-		@Override
-		public void mouseExited(MouseEvent anEvent) {
-			clearIdentification();
-		}
-
-		@Override
-		public void mouseEntered(MouseEvent anEvent) {
-			if (component instanceof JComponent) {
-				identifyComponent((JComponent) component);
+		public void eventDispatched(AWTEvent anEvent) {
+			if (!(anEvent instanceof MouseEvent)) {
+				return;
 			}
-		}
-
-		@Override
-		public void mouseClicked(MouseEvent anEvent) {
-			anEvent.consume();
-		}
-	}
 
-	/**
-	 * This thread is running all the time while identification mode is enabled. It makes sure that all visible
-	 * components get the listeners injected which perform background/border coloring and path resolving when hovering
-	 * over the component with the mouse.
-	 * 
-	 * 
-	 * @author Rene Schneider - initial API and implementation
-	 * 
-	 */
-	protected class ComponentInjectionThread extends Thread {
-
-		/**
-		 * The interval in milliseconds in which the thread tries to inject listeners into new components.
-		 */
-		protected static final int INJECTION_INTERVAL = 500;
-
-		/**
-		 * The kill switch to terminate the thread.
-		 */
-		private volatile boolean killSwitch;
-
-		/**
-		 * Creates a new instance.
-		 */
-		public ComponentInjectionThread() {
-			super("Author Assist Component Injection");
-		}
+			MouseEvent tempMouseEvent = (MouseEvent) anEvent;
+			Component tempSource = tempMouseEvent.getComponent();
+			if (tempSource == null) {
+				return;
+			}
 
-		/**
-		 * Kills the thread gracefully.
-		 */
-		public void kill() {
-			killSwitch = true;
-			this.interrupt();
-		}
+			Window tempWindow = tempSource instanceof Window ? (Window) tempSource : SwingUtilities
+					.getWindowAncestor(tempSource);
+			if (tempWindow == null || tempWindow == SwingAuthorAssistFrame.this) {
+				return;
+			}
 
-		@Override
-		public void run() {
-			while (!killSwitch) {
-				injectComponentListeners();
-				try {
-					Thread.sleep(INJECTION_INTERVAL);
-				} catch (InterruptedException exc) {
-					// ignored
+			Point tempPoint = SwingUtilities.convertPoint(tempSource, tempMouseEvent.getPoint(), tempWindow);
+			Component tempComponent = SwingUtilities.getDeepestComponentAt(tempWindow, tempPoint.x, tempPoint.y);
+			if (tempComponent != identifiedComponent) {
+				clearIdentification();
+				if (tempComponent instanceof JComponent) {
+					identifyComponent((JComponent) tempComponent);
 				}
 			}
-
-			cleanupComponentListeners();
 		}
 	}
 
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing.authorassist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+import de.gebit.integrity.bindings.swing.authorassist.SwingAuthorAssistServer.ClassloaderAwareObjectInputStream;
+
+/**
+ * Defines the wire protocol used between the {@link SwingAuthorAssistServer} and the {@link SwingAuthorAssistClient}.
+ * Both sides exchange frames over a single, long-lived connection. Every frame consists of a header and a payload:
+ * 
+ * <pre>
+ * int  request ID (chosen by the client, echoed in all frames belonging to the request)
+ * byte frame type (see FRAME_* constants)
+ * byte codec used for the payload (see CODEC_* constants)
+ * int  payload length in bytes
+ * ...  payload
+ * </pre>
+ * 
+ * Since every frame carries the request ID, the responses to multiple requests can be multiplexed on the same
+ * connection, and a client may abandon a request (for example because it timed out) without having to close the
+ * connection.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public final class SwingAuthorAssistProtocol {
+
+	/**
+	 * The size of a frame header in bytes.
+	 */
+	public static final int HEADER_SIZE = 10;
+
+	/**
+	 * The maximum payload size accepted by either side.
+	 */
+	public static final int MAX_PAYLOAD_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * A request frame (client to server). The payload is an
+	 * {@link de.gebit.integrity.bindings.swing.authorassist.queries.AbstractSwingAuthorAssistQuery}.
+	 */
+	public static final byte FRAME_REQUEST = 1;
+
+	/**
+	 * A response frame (server to client). The payload is an Object[] containing the last results of the query (all
+	 * results which were not sent in {@link #FRAME_CHUNK} frames before). It completes the request.
+	 */
+	public static final byte FRAME_RESPONSE = 2;
+
+	/**
+	 * An error frame (server to client). The payload is a String describing the error.
+	 */
+	public static final byte FRAME_ERROR = 3;
+
+	/**
+	 * A chunk frame (server to client). The payload is an Object[] containing some of the results of the query. Any
+	 * number of chunks may precede the final {@link #FRAME_RESPONSE}.
+	 */
+	public static final byte FRAME_CHUNK = 4;
+
+	/**
+	 * A cancel frame (client to server). The payload is empty. Sent when the client has abandoned a request (for example
+	 * because it timed out); the server stops processing the request and doesn't send any further frames for it.
+	 */
+	public static final byte FRAME_CANCEL = 5;
+
+	/**
+	 * The payload is encoded using standard Java serialization.
+	 */
+	public static final byte CODEC_JAVA_SERIALIZATION = 0;
+
+	/**
+	 * The payload is encoded using the {@link SwingAuthorAssistBinaryCodec}. Only used for responses, and only if all
+	 * results are supported by that codec.
+	 */
+	public static final byte CODEC_BINARY = 1;
+
+	/**
+	 * Private constructor; this class has only static methods.
+	 */
+	private SwingAuthorAssistProtocol() {
+		// only static methods
+	}
+
+	/**
+	 * Creates a frame.
+	 * 
+	 * @param aRequestId
+	 *            the request ID
+	 * @param aFrameType
+	 *            the frame type
+	 * @param aCodec
+	 *            the codec used for the payload
+	 * @param aPayload
+	 *            the payload
+	 * @return a buffer containing the frame, ready to be written
+	 */
+	public static ByteBuffer createFrame(int aRequestId, byte aFrameType, byte aCodec, byte[] aPayload) {
+		ByteBuffer tempBuffer = ByteBuffer.allocate(HEADER_SIZE + aPayload.length);
+		tempBuffer.putInt(aRequestId);
+		tempBuffer.put(aFrameType);
+		tempBuffer.put(aCodec);
+		tempBuffer.putInt(aPayload.length);
+		tempBuffer.put(aPayload);
+		tempBuffer.flip();
+		return tempBuffer;
+	}
+
+	/**
+	 * Serializes an object using Java serialization.
+	 * 
+	 * @param anObject
+	 *            the object
+	 * @return the serialized form
+	 * @throws IOException
+	 */
+	public static byte[] serialize(Object anObject) throws IOException {
+		ByteArrayOutputStream tempByteStream = new ByteArrayOutputStream();
+		ObjectOutputStream tempObjectStream = new ObjectOutputStream(tempByteStream);
+		tempObjectStream.writeObject(anObject);
+		tempObjectStream.close();
+		return tempByteStream.toByteArray();
+	}
+
+	/**
+	 * Deserializes an object using Java serialization.
+	 * 
+	 * @param someBytes
+	 *            the serialized form
+	 * @param aClassLoader
+	 *            the classloader to use for resolving classes (may be null)
+	 * @return the object
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public static Object deserialize(byte[] someBytes, ClassLoader aClassLoader) throws IOException,
+			ClassNotFoundException {
+		ObjectInputStream tempObjectStream = new ClassloaderAwareObjectInputStream(new ByteArrayInputStream(
+				someBytes), aClassLoader);
+		try {
+			return tempObjectStream.readObject();
+		} finally {
+			tempObjectStream.close();
+		}
+	}
+}
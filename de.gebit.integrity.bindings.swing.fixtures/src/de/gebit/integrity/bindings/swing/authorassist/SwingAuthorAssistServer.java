@@ -7,26 +7,42 @@
  *******************************************************************************/
 package de.gebit.integrity.bindings.swing.authorassist;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.JFrame;
 
 import de.gebit.integrity.bindings.swing.AbstractSwingComponentHandler;
 import de.gebit.integrity.bindings.swing.authorassist.queries.AbstractSwingAuthorAssistQuery;
+import de.gebit.integrity.bindings.swing.authorassist.queries.AbstractSwingAuthorAssistQuery.ResultConsumer;
+import de.gebit.integrity.bindings.swing.exceptions.IntegritySwingBindingsException;
 
 /**
  * The author assist server provides a kind of entrance into the running application, primarily used by the Swing
  * Fixture content assist feature in the Integrity editor. When the server is running, the content assist feature can
- * connect to it and query for information about components in the currently-running application.
+ * connect to it and query for information about components in the currently-running application. See
+ * {@link SwingAuthorAssistProtocol} for the protocol and {@link SwingAuthorAssistClient} for the client side.
  * 
  * @author Rene Schneider - initial API and implementation
  * 
@@ -63,6 +79,26 @@ public class SwingAuthorAssistServer {
 	 */
 	public static final String DEFAULT_HOST = "127.0.0.1";
 
+	/**
+	 * The number of worker threads which process queries.
+	 */
+	protected static final int WORKER_THREAD_COUNT = 2;
+
+	/**
+	 * The number of results sent in the first chunk of a response.
+	 */
+	protected static final int FIRST_CHUNK_SIZE = 10;
+
+	/**
+	 * The number of results sent in subsequent chunks of a response.
+	 */
+	protected static final int CHUNK_SIZE = 50;
+
+	/**
+	 * The executor which processes the queries.
+	 */
+	protected ExecutorService workerExecutor;
+
 	/**
 	 * Creates a new instance.
 	 */
@@ -70,17 +106,20 @@ public class SwingAuthorAssistServer {
 			ClassLoader aClassLoader) {
 		swingComponentHandler = aSwingComponentHandler;
 		ownerFrame = anOwnerFrame;
+		classLoader = aClassLoader;
 	}
 
 	/**
-	 * Creates and returns a new {@link ServerSocket}, bound to the desired hostname and port.
+	 * Creates and returns a new {@link ServerSocketChannel}, bound to the desired hostname and port.
 	 * 
-	 * @return the bound socket
+	 * @return the bound channel
 	 * @throws UnknownHostException
 	 * @throws IOException
 	 */
-	protected ServerSocket createServerSocket() throws UnknownHostException, IOException {
-		return new ServerSocket(DEFAULT_PORT, 1, InetAddress.getByName(DEFAULT_HOST));
+	protected ServerSocketChannel createServerSocketChannel() throws UnknownHostException, IOException {
+		ServerSocketChannel tempChannel = ServerSocketChannel.open();
+		tempChannel.socket().bind(new InetSocketAddress(InetAddress.getByName(DEFAULT_HOST), DEFAULT_PORT));
+		return tempChannel;
 	}
 
 	/**
@@ -88,6 +127,15 @@ public class SwingAuthorAssistServer {
 	 */
 	public void startUp() {
 		if (serverThread == null) {
+			workerExecutor = Executors.newFixedThreadPool(WORKER_THREAD_COUNT, new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable aRunnable) {
+					Thread tempThread = new Thread(aRunnable, "Author Assist Worker");
+					tempThread.setDaemon(true);
+					return tempThread;
+				}
+			});
 			serverThread = new SwingAuthorAssistServerThread();
 			serverThread.start();
 		}
@@ -100,13 +148,95 @@ public class SwingAuthorAssistServer {
 		if (serverThread != null) {
 			serverThread.kill();
 			serverThread = null;
+			workerExecutor.shutdownNow();
+			workerExecutor = null;
+		}
+	}
+
+	/**
+	 * Processes a single request frame. Called on a worker thread.
+	 * 
+	 * @param aCodec
+	 *            the codec of the payload
+	 * @param aPayload
+	 *            the payload
+	 * @param aConsumer
+	 *            the consumer which sends the results of the request
+	 */
+	protected void processRequest(byte aCodec, byte[] aPayload, ChunkingResultConsumer aConsumer) {
+		if (aConsumer.cancelled) {
+			// Cancelled while still queued
+			return;
+		}
+
+		try {
+			Object tempQuery = SwingAuthorAssistProtocol.deserialize(aPayload, classLoader);
+
+			if (tempQuery instanceof AbstractSwingAuthorAssistQuery) {
+				((AbstractSwingAuthorAssistQuery) tempQuery).process(swingComponentHandler, ownerFrame, aConsumer);
+				aConsumer.finish();
+			} else {
+				sendError(aConsumer.requestId, "Unknown query type", aConsumer.connection);
+			}
+		} catch (RequestCancelledException exc) {
+			// The client has abandoned the request, so nobody is interested in the results anymore
+		} catch (Throwable exc) {
+			exc.printStackTrace();
+			sendError(aConsumer.requestId, exc.toString(), aConsumer.connection);
+		}
+	}
+
+	/**
+	 * Sends a frame containing results.
+	 * 
+	 * @param aRequestId
+	 *            the request ID
+	 * @param aFrameType
+	 *            the frame type ({@link SwingAuthorAssistProtocol#FRAME_CHUNK} or
+	 *            {@link SwingAuthorAssistProtocol#FRAME_RESPONSE})
+	 * @param someResults
+	 *            the results
+	 * @param aConnection
+	 *            the connection to send the frame on
+	 * @throws IOException
+	 */
+	protected void sendResults(int aRequestId, byte aFrameType, Object[] someResults, Connection aConnection)
+			throws IOException {
+		if (SwingAuthorAssistBinaryCodec.canEncode(someResults)) {
+			aConnection.send(SwingAuthorAssistProtocol.createFrame(aRequestId, aFrameType,
+					SwingAuthorAssistProtocol.CODEC_BINARY, SwingAuthorAssistBinaryCodec.encode(someResults)));
+		} else {
+			// Fall back to Java serialization for result types unknown to the binary codec
+			aConnection.send(SwingAuthorAssistProtocol.createFrame(aRequestId, aFrameType,
+					SwingAuthorAssistProtocol.CODEC_JAVA_SERIALIZATION, SwingAuthorAssistProtocol.serialize(someResults)));
+		}
+	}
+
+	/**
+	 * Sends an error frame.
+	 * 
+	 * @param aRequestId
+	 *            the request ID
+	 * @param aMessage
+	 *            the error message
+	 * @param aConnection
+	 *            the connection to send the frame on
+	 */
+	protected void sendError(int aRequestId, String aMessage, Connection aConnection) {
+		try {
+			aConnection.send(SwingAuthorAssistProtocol.createFrame(aRequestId, SwingAuthorAssistProtocol.FRAME_ERROR,
+					SwingAuthorAssistProtocol.CODEC_JAVA_SERIALIZATION, SwingAuthorAssistProtocol.serialize(aMessage)));
+		} catch (IOException exc) {
+			// nothing more we can do
 		}
 	}
 
 	/**
 	 * The author assist server is responsible for providing an entrance into the running Swing application to the code
 	 * completion functionality of the Swing bindings (base class:
-	 * {@link de.gebit.integrity.bindings.swing.eclipse.AbstractSwingFixtureAssist} ).
+	 * {@link de.gebit.integrity.bindings.swing.eclipse.AbstractSwingFixtureAssist} ). It accepts any number of
+	 * long-lived connections and handles all of them with a single selector; the actual queries are processed by the
+	 * {@link SwingAuthorAssistServer#workerExecutor}.
 	 * 
 	 * 
 	 * @author Rene Schneider - initial API and implementation
@@ -115,87 +245,408 @@ public class SwingAuthorAssistServer {
 	protected class SwingAuthorAssistServerThread extends Thread {
 
 		/**
-		 * The server socket.
+		 * The server socket channel.
 		 */
-		protected ServerSocket serverSocket;
+		protected ServerSocketChannel serverChannel;
+
+		/**
+		 * The selector.
+		 */
+		protected Selector selector;
+
+		/**
+		 * The kill switch.
+		 */
+		protected volatile boolean killed;
 
 		/**
 		 * Creates an instance.
 		 */
 		public SwingAuthorAssistServerThread() {
 			super("Author Assist Server");
+			setDaemon(true);
 		}
 
 		/**
 		 * Kills the server by closing the socket and ending the thread.
 		 */
 		public void kill() {
-			try {
-				serverSocket.close();
-			} catch (IOException exc) {
-				exc.printStackTrace();
+			killed = true;
+			if (selector != null) {
+				selector.wakeup();
 			}
 		}
 
 		@Override
 		public void run() {
 			try {
-				serverSocket = createServerSocket();
-
-				while (!serverSocket.isClosed()) {
-					Socket tempClientSocket;
-					try {
-						tempClientSocket = serverSocket.accept();
-					} catch (SocketException exc) {
-						if (!serverSocket.isClosed()) {
-							exc.printStackTrace();
-						}
-						break;
-					}
+				selector = Selector.open();
+				serverChannel = createServerSocketChannel();
+				serverChannel.configureBlocking(false);
+				serverChannel.register(selector, SelectionKey.OP_ACCEPT);
 
-					ObjectInputStream tempObjectInputStream = null;
-					try {
-						tempObjectInputStream = new ClassloaderAwareObjectInputStream(
-								tempClientSocket.getInputStream(), classLoader);
+				while (!killed) {
+					selector.select();
 
-						Object tempQuery = tempObjectInputStream.readObject();
+					Iterator<SelectionKey> tempKeys = selector.selectedKeys().iterator();
+					while (tempKeys.hasNext()) {
+						SelectionKey tempKey = tempKeys.next();
+						tempKeys.remove();
 
-						if (tempQuery instanceof AbstractSwingAuthorAssistQuery) {
-							Object[] tempResult = ((AbstractSwingAuthorAssistQuery) tempQuery).process(
-									swingComponentHandler, ownerFrame);
-							if (tempResult == null) {
-								tempResult = new Object[0];
+						try {
+							if (!tempKey.isValid()) {
+								continue;
+							}
+							if (tempKey.isAcceptable()) {
+								accept();
+							} else {
+								Connection tempConnection = (Connection) tempKey.attachment();
+								if (tempKey.isReadable()) {
+									tempConnection.read();
+								}
+								if (tempKey.isValid() && tempKey.isWritable()) {
+									tempConnection.write();
+								}
 							}
+						} catch (IOException exc) {
+							// The client has most likely gone away
+							closeConnection(tempKey);
+						}
+					}
 
-							ObjectOutputStream tempObjectOutputStream = new ObjectOutputStream(
-									tempClientSocket.getOutputStream());
-							tempObjectOutputStream.writeObject(tempResult);
-							tempObjectOutputStream.flush();
+					for (SelectionKey tempKey : selector.keys()) {
+						if (tempKey.isValid() && tempKey.attachment() instanceof Connection) {
+							((Connection) tempKey.attachment()).updateInterest();
 						}
+					}
+				}
+			} catch (IOException exc) {
+				exc.printStackTrace();
+			} finally {
+				if (selector != null) {
+					for (SelectionKey tempKey : selector.keys()) {
+						closeConnection(tempKey);
+					}
+					closeQuietly(selector);
+				}
+				closeQuietly(serverChannel);
+			}
+		}
 
-						// } else if ("treeitems".equals(tempQueryType)) {
-						// processTreeItemQuery(tempQueryLine, tempWriter);
-						// }
+		/**
+		 * Accepts a new client connection.
+		 * 
+		 * @throws IOException
+		 */
+		protected void accept() throws IOException {
+			SocketChannel tempChannel = serverChannel.accept();
+			if (tempChannel != null) {
+				tempChannel.configureBlocking(false);
+				tempChannel.socket().setTcpNoDelay(true);
+				SelectionKey tempKey = tempChannel.register(selector, SelectionKey.OP_READ);
+				tempKey.attach(new Connection(tempChannel, tempKey));
+			}
+		}
 
-					} catch (Throwable exc) {
-						exc.printStackTrace();
-					} finally {
-						try {
-							if (tempObjectInputStream != null) {
-								tempObjectInputStream.close();
+		/**
+		 * Closes the channel of the given key and cancels all requests still active on its connection, so the workers
+		 * don't keep producing results which can't be delivered anymore.
+		 * 
+		 * @param aKey
+		 *            the selection key
+		 */
+		protected void closeConnection(SelectionKey aKey) {
+			closeQuietly(aKey.channel());
+			aKey.cancel();
+			if (aKey.attachment() instanceof Connection) {
+				((Connection) aKey.attachment()).cancelActiveRequests();
+			}
+		}
+
+		/**
+		 * Closes something, ignoring any errors.
+		 * 
+		 * @param aCloseable
+		 *            the thing to close (may be null)
+		 */
+		protected void closeQuietly(Closeable aCloseable) {
+			if (aCloseable != null) {
+				try {
+					aCloseable.close();
+				} catch (IOException exc) {
+					// ignored on closing
+				}
+			}
+		}
+	}
+
+	/**
+	 * A single client connection. Incoming data is collected until complete frames are available, which are then handed
+	 * to the workers. Outgoing frames are queued by the workers and written by the server thread.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	protected class Connection {
+
+		/**
+		 * The channel.
+		 */
+		private SocketChannel channel;
+
+		/**
+		 * The selection key of the channel.
+		 */
+		private SelectionKey key;
+
+		/**
+		 * The buffer for the header of the frame currently being read.
+		 */
+		private ByteBuffer headerBuffer = ByteBuffer.allocate(SwingAuthorAssistProtocol.HEADER_SIZE);
+
+		/**
+		 * The buffer for the payload of the frame currently being read (null while reading the header).
+		 */
+		private ByteBuffer payloadBuffer;
+
+		/**
+		 * The frames waiting to be written. Access must be synchronized on the queue.
+		 */
+		private Queue<ByteBuffer> outgoingFrames = new LinkedList<ByteBuffer>();
+
+		/**
+		 * The requests received on this connection which are queued or being processed, by request ID.
+		 */
+		private Map<Integer, ChunkingResultConsumer> activeRequests = new ConcurrentHashMap<Integer, ChunkingResultConsumer>();
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param aChannel
+		 *            the channel
+		 * @param aKey
+		 *            the selection key
+		 */
+		public Connection(SocketChannel aChannel, SelectionKey aKey) {
+			channel = aChannel;
+			key = aKey;
+		}
+
+		/**
+		 * Reads all available data and dispatches complete frames.
+		 * 
+		 * @throws IOException
+		 */
+		public void read() throws IOException {
+			while (true) {
+				ByteBuffer tempBuffer = payloadBuffer != null ? payloadBuffer : headerBuffer;
+				int tempRead = channel.read(tempBuffer);
+				if (tempRead < 0) {
+					throw new IOException("Connection closed by client");
+				}
+
+				if (tempBuffer.hasRemaining()) {
+					return;
+				}
+
+				if (payloadBuffer == null) {
+					int tempLength = headerBuffer.getInt(6);
+					if (tempLength < 0 || tempLength > SwingAuthorAssistProtocol.MAX_PAYLOAD_SIZE) {
+						throw new IOException("Invalid frame length " + tempLength);
+					}
+					payloadBuffer = ByteBuffer.allocate(tempLength);
+					if (tempLength > 0) {
+						continue;
+					}
+				}
+
+				final int tempRequestId = headerBuffer.getInt(0);
+				final byte tempFrameType = headerBuffer.get(4);
+				final byte tempCodec = headerBuffer.get(5);
+				final byte[] tempPayload = payloadBuffer.array();
+				headerBuffer.clear();
+				payloadBuffer = null;
+
+				if (tempFrameType == SwingAuthorAssistProtocol.FRAME_REQUEST) {
+					final ChunkingResultConsumer tempConsumer = new ChunkingResultConsumer(tempRequestId, this);
+					activeRequests.put(tempRequestId, tempConsumer);
+					workerExecutor.execute(new Runnable() {
+
+						@Override
+						public void run() {
+							try {
+								processRequest(tempCodec, tempPayload, tempConsumer);
+							} finally {
+								activeRequests.remove(tempRequestId);
 							}
-							tempClientSocket.close();
-						} catch (IOException exc) {
-							// ignored on closing
 						}
+					});
+				} else if (tempFrameType == SwingAuthorAssistProtocol.FRAME_CANCEL) {
+					// Requests which have been completed already are not known anymore; the cancel is ignored for them
+					ChunkingResultConsumer tempConsumer = activeRequests.get(tempRequestId);
+					if (tempConsumer != null) {
+						tempConsumer.cancel();
 					}
 				}
-			} catch (UnknownHostException exc) {
-				exc.printStackTrace();
-			} catch (IOException exc) {
-				exc.printStackTrace();
 			}
 		}
+
+		/**
+		 * Cancels all requests received on this connection which are still queued or being processed.
+		 */
+		public void cancelActiveRequests() {
+			for (ChunkingResultConsumer tempConsumer : activeRequests.values()) {
+				tempConsumer.cancel();
+			}
+		}
+
+		/**
+		 * Queues a frame for sending. May be called from any thread.
+		 * 
+		 * @param aFrame
+		 *            the frame
+		 */
+		public void send(ByteBuffer aFrame) {
+			synchronized (outgoingFrames) {
+				outgoingFrames.add(aFrame);
+			}
+			key.selector().wakeup();
+		}
+
+		/**
+		 * Writes as many queued frames as possible.
+		 * 
+		 * @throws IOException
+		 */
+		public void write() throws IOException {
+			synchronized (outgoingFrames) {
+				while (!outgoingFrames.isEmpty()) {
+					ByteBuffer tempFrame = outgoingFrames.peek();
+					channel.write(tempFrame);
+					if (tempFrame.hasRemaining()) {
+						return;
+					}
+					outgoingFrames.remove();
+				}
+			}
+		}
+
+		/**
+		 * Updates the operations the selector shall watch for, depending on whether there are frames to be written.
+		 */
+		public void updateInterest() {
+			boolean tempHasOutgoingFrames;
+			synchronized (outgoingFrames) {
+				tempHasOutgoingFrames = !outgoingFrames.isEmpty();
+			}
+			key.interestOps(tempHasOutgoingFrames ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+					: SelectionKey.OP_READ);
+		}
+	}
+
+	/**
+	 * Collects the results of a query and sends them to the client in chunks, so the client can present the first
+	 * results while the rest is still being produced. The first chunk is kept small for that reason; later chunks are
+	 * larger to reduce the per-frame overhead.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	protected class ChunkingResultConsumer implements ResultConsumer {
+
+		/**
+		 * The request ID.
+		 */
+		private int requestId;
+
+		/**
+		 * The connection to send the chunks on.
+		 */
+		private Connection connection;
+
+		/**
+		 * The results not yet sent.
+		 */
+		private List<Object> buffer = new ArrayList<Object>();
+
+		/**
+		 * The number of results after which the next chunk is sent.
+		 */
+		private int chunkSize = FIRST_CHUNK_SIZE;
+
+		/**
+		 * Whether the client has cancelled the request.
+		 */
+		private volatile boolean cancelled;
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param aRequestId
+		 *            the request ID
+		 * @param aConnection
+		 *            the connection to send the chunks on
+		 */
+		public ChunkingResultConsumer(int aRequestId, Connection aConnection) {
+			requestId = aRequestId;
+			connection = aConnection;
+		}
+
+		/**
+		 * Marks the request as cancelled. The next result added aborts the query processing.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		@Override
+		public void addResult(Object aResult) {
+			if (cancelled) {
+				throw new RequestCancelledException();
+			}
+			buffer.add(aResult);
+			if (buffer.size() >= chunkSize) {
+				try {
+					sendResults(requestId, SwingAuthorAssistProtocol.FRAME_CHUNK, buffer.toArray(), connection);
+				} catch (IOException exc) {
+					throw new IntegritySwingBindingsException("Failed to send author assist results", exc);
+				}
+				buffer.clear();
+				chunkSize = CHUNK_SIZE;
+			}
+		}
+
+		/**
+		 * Sends the remaining results as the final response.
+		 * 
+		 * @throws IOException
+		 */
+		public void finish() throws IOException {
+			if (cancelled) {
+				return;
+			}
+			sendResults(requestId, SwingAuthorAssistProtocol.FRAME_RESPONSE, buffer.toArray(), connection);
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Thrown by {@link ChunkingResultConsumer#addResult(Object)} to abort the processing of a query which has been
+	 * cancelled by the client.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	protected static class RequestCancelledException extends IntegritySwingBindingsException {
+
+		/**
+		 * Serial Version.
+		 */
+		private static final long serialVersionUID = 4830771936112447120L;
+
 	}
 
 	/**
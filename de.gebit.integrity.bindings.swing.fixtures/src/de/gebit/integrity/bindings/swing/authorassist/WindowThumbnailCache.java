@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing.authorassist;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Window;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import de.gebit.integrity.bindings.swing.ComponentIndex;
+
+/**
+ * A process-wide cache of scaled-down window images, used for the overview images in author assist proposals. Painting
+ * and scaling a whole window is by far the most expensive part of producing a proposal, and the windows rarely change
+ * between two queries fired while the user is typing, so the scaled images are kept and reused across queries.<br>
+ * <br>
+ * A cached image is considered stale if components have been added, removed or renamed anywhere (tracked via the
+ * {@link ComponentIndex} revision), if the window was resized, or if it has reached the maximum age (see
+ * {@link #MAX_AGE_PARAMETER}) - the latter covers content changes like edited text, which don't cause any structural
+ * events. Windows are only referenced weakly.<br>
+ * <br>
+ * The images returned by this cache are shared and must not be modified; callers which want to draw on them must work
+ * on a copy.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public final class WindowThumbnailCache {
+
+	/**
+	 * The system property which can be used to define the maximum age of cached window images in milliseconds.
+	 */
+	public static final String MAX_AGE_PARAMETER = "de.gebit.integrity.bindings.swing.thumbnailMaxAge";
+
+	/**
+	 * The default maximum age of cached window images in milliseconds.
+	 */
+	public static final long DEFAULT_MAX_AGE = 2000;
+
+	/**
+	 * The singleton instance.
+	 */
+	private static final WindowThumbnailCache INSTANCE = new WindowThumbnailCache();
+
+	/**
+	 * The cached thumbnails.
+	 */
+	private final Map<Window, Thumbnail> thumbnails = new WeakHashMap<Window, Thumbnail>();
+
+	/**
+	 * The maximum age of cached window images.
+	 */
+	private final long maxAge;
+
+	/**
+	 * Private constructor; use {@link #getInstance()}.
+	 */
+	private WindowThumbnailCache() {
+		maxAge = Long.getLong(MAX_AGE_PARAMETER, DEFAULT_MAX_AGE);
+	}
+
+	/**
+	 * Returns the cache instance.
+	 * 
+	 * @return the cache
+	 */
+	public static WindowThumbnailCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns a scaled image of the given window, reusing a cached one if it is still current. The image is scaled
+	 * down to fit into the given maximum dimensions, unless this would require scaling below the given minimum
+	 * scaling factor; images are never scaled up.
+	 * 
+	 * @param aWindow
+	 *            the window
+	 * @param aMaxWidth
+	 *            the maximum width
+	 * @param aMaxHeight
+	 *            the maximum height
+	 * @param aMinScaling
+	 *            the minimum scaling factor
+	 * @return the thumbnail
+	 */
+	public Thumbnail getThumbnail(Window aWindow, int aMaxWidth, int aMaxHeight, float aMinScaling) {
+		long tempRevision = ComponentIndex.getInstance().getRevision();
+		long tempNow = System.currentTimeMillis();
+
+		synchronized (thumbnails) {
+			Thumbnail tempThumbnail = thumbnails.get(aWindow);
+			if (tempThumbnail != null && tempThumbnail.revision == tempRevision
+					&& tempThumbnail.windowWidth == aWindow.getWidth()
+					&& tempThumbnail.windowHeight == aWindow.getHeight() && tempThumbnail.maxWidth == aMaxWidth
+					&& tempThumbnail.maxHeight == aMaxHeight && tempNow - tempThumbnail.creationTime < maxAge) {
+				return tempThumbnail;
+			}
+		}
+
+		Thumbnail tempThumbnail = createThumbnail(aWindow, aMaxWidth, aMaxHeight, aMinScaling);
+		tempThumbnail.revision = tempRevision;
+		tempThumbnail.creationTime = tempNow;
+		synchronized (thumbnails) {
+			thumbnails.put(aWindow, tempThumbnail);
+		}
+		return tempThumbnail;
+	}
+
+	/**
+	 * Drops all cached images.
+	 */
+	public void invalidate() {
+		synchronized (thumbnails) {
+			thumbnails.clear();
+		}
+	}
+
+	/**
+	 * Paints and scales a window.
+	 * 
+	 * @param aWindow
+	 *            the window
+	 * @param aMaxWidth
+	 *            the maximum width
+	 * @param aMaxHeight
+	 *            the maximum height
+	 * @param aMinScaling
+	 *            the minimum scaling factor
+	 * @return the new thumbnail
+	 */
+	private Thumbnail createThumbnail(Window aWindow, int aMaxWidth, int aMaxHeight, float aMinScaling) {
+		int tempWindowWidth = aWindow.getWidth();
+		int tempWindowHeight = aWindow.getHeight();
+
+		BufferedImage tempImage = new BufferedImage(tempWindowWidth, tempWindowHeight, BufferedImage.TYPE_INT_RGB);
+		Graphics2D tempGraphics = (Graphics2D) tempImage.getGraphics();
+		aWindow.paintAll(tempGraphics);
+		tempGraphics.dispose();
+
+		float tempScalingFactor1 = (float) aMaxWidth / (float) tempImage.getWidth();
+		float tempScalingFactor2 = (float) aMaxHeight / (float) tempImage.getHeight();
+		float tempScalingFactor = tempScalingFactor1 < tempScalingFactor2 ? tempScalingFactor1 : tempScalingFactor2;
+
+		BufferedImage tempScaledImage;
+		if (tempScalingFactor >= 1.0) {
+			tempScalingFactor = 1.0f;
+			tempScaledImage = tempImage;
+		} else {
+			if (tempScalingFactor < aMinScaling) {
+				tempScalingFactor = aMinScaling;
+			}
+
+			tempScaledImage = new BufferedImage(Math.round((float) tempImage.getWidth() * tempScalingFactor),
+					Math.round((float) tempImage.getHeight() * tempScalingFactor), BufferedImage.TYPE_INT_RGB);
+			tempGraphics = (Graphics2D) tempScaledImage.getGraphics();
+			tempGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+					RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			tempGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			tempGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			tempGraphics.drawImage(tempImage, 0, 0, tempScaledImage.getWidth(), tempScaledImage.getHeight(), 0, 0,
+					tempImage.getWidth(), tempImage.getHeight(), null);
+			tempGraphics.dispose();
+		}
+
+		return new Thumbnail(tempScaledImage, tempScalingFactor, tempWindowWidth, tempWindowHeight, aMaxWidth,
+				aMaxHeight);
+	}
+
+	/**
+	 * A scaled window image.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	public static final class Thumbnail {
+
+		/**
+		 * The scaled image (shared, must not be modified).
+		 */
+		private final BufferedImage image;
+
+		/**
+		 * The factor by which the window was scaled.
+		 */
+		private final float scalingFactor;
+
+		/**
+		 * The window width at the time the image was taken.
+		 */
+		private final int windowWidth;
+
+		/**
+		 * The window height at the time the image was taken.
+		 */
+		private final int windowHeight;
+
+		/**
+		 * The maximum width requested.
+		 */
+		private final int maxWidth;
+
+		/**
+		 * The maximum height requested.
+		 */
+		private final int maxHeight;
+
+		/**
+		 * The {@link ComponentIndex} revision at the time the image was taken.
+		 */
+		private long revision;
+
+		/**
+		 * The time the image was taken.
+		 */
+		private long creationTime;
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param anImage
+		 *            the scaled image
+		 * @param aScalingFactor
+		 *            the scaling factor
+		 * @param aWindowWidth
+		 *            the window width
+		 * @param aWindowHeight
+		 *            the window height
+		 * @param aMaxWidth
+		 *            the maximum width requested
+		 * @param aMaxHeight
+		 *            the maximum height requested
+		 */
+		private Thumbnail(BufferedImage anImage, float aScalingFactor, int aWindowWidth, int aWindowHeight,
+				int aMaxWidth, int aMaxHeight) {
+			image = anImage;
+			scalingFactor = aScalingFactor;
+			windowWidth = aWindowWidth;
+			windowHeight = aWindowHeight;
+			maxWidth = aMaxWidth;
+			maxHeight = aMaxHeight;
+		}
+
+		public BufferedImage getImage() {
+			return image;
+		}
+
+		public float getScalingFactor() {
+			return scalingFactor;
+		}
+	}
+}
@@ -26,6 +26,32 @@ public abstract class AbstractSwingAuthorAssistQuery implements Serializable {
 	 */
 	private static final long serialVersionUID = 1034876941254714859L;
 
+	/**
+	 * The number of results to skip.
+	 */
+	private int offset;
+
+	/**
+	 * The maximum number of results to return (0 = unlimited).
+	 */
+	private int limit;
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public void setOffset(int anOffset) {
+		offset = anOffset;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public void setLimit(int aLimit) {
+		limit = aLimit;
+	}
+
 	/**
 	 * Processes the query and produces a result returned to the client.
 	 * 
@@ -37,4 +63,59 @@ public abstract class AbstractSwingAuthorAssistQuery implements Serializable {
 	 */
 	public abstract Object[] process(AbstractSwingComponentHandler aComponentHandler, JFrame anOwnerFrame);
 
+	/**
+	 * Processes the query and hands the results to the given consumer as soon as they are available, honoring the
+	 * {@link #getOffset() offset} and {@link #getLimit() limit}. The default implementation just feeds the consumer with
+	 * the results of {@link #process(AbstractSwingComponentHandler, JFrame)}; queries which produce their results
+	 * slowly (for example because images are rendered for each result) should override this to produce them
+	 * incrementally.
+	 * 
+	 * @param aComponentHandler
+	 *            the component handler to use for query processing
+	 * @param anOwnerFrame
+	 *            the frame owning the author assist server
+	 * @param aConsumer
+	 *            the consumer which receives the results
+	 */
+	public void process(AbstractSwingComponentHandler aComponentHandler, JFrame anOwnerFrame,
+			ResultConsumer aConsumer) {
+		Object[] tempResults = process(aComponentHandler, anOwnerFrame);
+		if (tempResults != null) {
+			for (int i = offset; i < tempResults.length && !isLimitReached(i - offset); i++) {
+				aConsumer.addResult(tempResults[i]);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the given number of results already reaches the limit.
+	 * 
+	 * @param aResultCount
+	 *            the number of results produced so far (not counting skipped ones)
+	 * @return true if no further results shall be produced
+	 */
+	protected boolean isLimitReached(int aResultCount) {
+		return limit > 0 && aResultCount >= limit;
+	}
+
+	/**
+	 * Receives results produced by
+	 * {@link AbstractSwingAuthorAssistQuery#process(AbstractSwingComponentHandler, JFrame, ResultConsumer)}.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	public interface ResultConsumer {
+
+		/**
+		 * Adds a single result.
+		 * 
+		 * @param aResult
+		 *            the result
+		 */
+		void addResult(Object aResult);
+
+	}
+
 }
@@ -11,24 +11,29 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Container;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
 import java.awt.Window;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
-import javax.imageio.ImageIO;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JToggleButton;
 
 import de.gebit.integrity.bindings.swing.AbstractSwingComponentHandler;
+import de.gebit.integrity.bindings.swing.AbstractSwingComponentHandler.PathInfo;
+import de.gebit.integrity.bindings.swing.authorassist.WindowThumbnailCache;
+import de.gebit.integrity.bindings.swing.authorassist.WindowThumbnailCache.Thumbnail;
 import de.gebit.integrity.bindings.swing.util.Base64;
+import de.gebit.integrity.bindings.swing.util.ImageEncoderPool;
 
 /**
  * This queries the server for available components matching a certain class.
@@ -49,15 +54,41 @@ public class SwingAuthorAssistComponentQuery extends AbstractSwingAuthorAssistQu
 	private String componentClassName;
 
 	/**
-	 * This cache is used internally for caching expensive stuff, such as generated component images.
+	 * The pattern the component paths are filtered with (prefix, substring or fuzzy match; see
+	 * {@link #computeMatchScore(String)}). If null, don't filter.
 	 */
-	private Map<Object, Object> cacheMap = new HashMap<Object, Object>();
+	private String filterPattern;
 
 	/**
 	 * This is used as newline indicator in both HTML and plain results.
 	 */
 	public static final String COMPONENT_LINE_NEWLINE = "<br>";
 
+	/**
+	 * Base score for paths starting with the filter pattern.
+	 */
+	protected static final int SCORE_PREFIX = 40000;
+
+	/**
+	 * Base score for paths containing the filter pattern at the start of a path part.
+	 */
+	protected static final int SCORE_PART_PREFIX = 30000;
+
+	/**
+	 * Base score for paths containing the filter pattern anywhere.
+	 */
+	protected static final int SCORE_SUBSTRING = 20000;
+
+	/**
+	 * Base score for paths matching the filter pattern fuzzily.
+	 */
+	protected static final int SCORE_FUZZY = 10000;
+
+	/**
+	 * The maximum number of results waiting for their images to be encoded.
+	 */
+	protected static final int MAX_PENDING_RESULTS = 32;
+
 	/**
 	 * Creates an instance.
 	 * 
@@ -67,38 +98,141 @@ public class SwingAuthorAssistComponentQuery extends AbstractSwingAuthorAssistQu
 		componentClassName = aComponentClassName;
 	}
 
+	/**
+	 * Creates an instance which filters the component paths.
+	 * 
+	 * @param aComponentClassName
+	 *            the component class name to filter
+	 * @param aFilterPattern
+	 *            the pattern to filter the component paths with (may be null)
+	 */
+	public SwingAuthorAssistComponentQuery(String aComponentClassName, String aFilterPattern) {
+		componentClassName = aComponentClassName;
+		filterPattern = aFilterPattern;
+	}
+
 	public String getComponentClassName() {
 		return componentClassName;
 	}
 
+	public String getFilterPattern() {
+		return filterPattern;
+	}
+
 	@Override
 	public Object[] process(AbstractSwingComponentHandler aComponentHandler, JFrame anOwnerFrame) {
+		final List<Object> tempResults = new ArrayList<Object>();
+		process(aComponentHandler, anOwnerFrame, new ResultConsumer() {
+
+			@Override
+			public void addResult(Object aResult) {
+				tempResults.add(aResult);
+			}
+		});
+
+		return tempResults.toArray();
+	}
+
+	@Override
+	public void process(AbstractSwingComponentHandler aComponentHandler, JFrame anOwnerFrame,
+			ResultConsumer aConsumer) {
 		try {
 			Class<?> tempFilterClass = getClass().getClassLoader().loadClass(componentClassName);
 
 			@SuppressWarnings("unchecked")
-			List<Component> tempComponents = (List<Component>) aComponentHandler.findComponents(null,
-					(Class<? extends Component>) tempFilterClass, anOwnerFrame);
+			Map<Component, PathInfo> tempPathInfos = (Map<Component, PathInfo>) aComponentHandler
+					.createComponentPathInfos(aComponentHandler.getVisibleWindows(anOwnerFrame),
+							(Class<? extends Component>) tempFilterClass);
 
-			List<Object> tempResults = new ArrayList<Object>();
-			for (Component tempComponent : tempComponents) {
-				String tempLongPath = aComponentHandler.createUniquifiedComponentPath(tempComponent);
-				String tempShortPath = aComponentHandler.createShortestComponentPath(tempComponent);
+			// Filter and rank by the pattern first; offset and limit are then applied before the (expensive) results
+			// are generated, so only the best matches are rendered
+			List<RankedComponent> tempCandidates = new ArrayList<RankedComponent>(tempPathInfos.size());
+			for (Entry<Component, PathInfo> tempEntry : tempPathInfos.entrySet()) {
+				String tempLongPath = tempEntry.getValue().getUniquifiedPath();
+				String tempShortPath = tempEntry.getValue().getShortestPath();
 
 				if (tempLongPath != null) {
-					if (tempShortPath == null) {
-						tempShortPath = "";
+					int tempScore = Math.max(computeMatchScore(tempLongPath), computeMatchScore(tempShortPath));
+					if (tempScore >= 0) {
+						tempCandidates.add(new RankedComponent(tempEntry.getKey(), tempLongPath,
+								tempShortPath != null ? tempShortPath : "", tempScore));
 					}
-					tempResults.add(generateResult(tempShortPath, tempLongPath, tempComponent));
 				}
 			}
+			if (filterPattern != null) {
+				// stable sort, so equally-ranked components keep their order
+				Collections.sort(tempCandidates);
+			}
 
-			return tempResults.toArray();
+			// Images are encoded in parallel by the encoder pool while the next components are being prepared; the
+			// results are nevertheless handed to the consumer in order
+			LinkedList<PendingResult> tempPendingResults = new LinkedList<PendingResult>();
+			for (int i = getOffset(); i < tempCandidates.size() && !isLimitReached(i - getOffset()); i++) {
+				RankedComponent tempCandidate = tempCandidates.get(i);
+				tempPendingResults.add(prepareResult(tempCandidate.shortPath, tempCandidate.longPath,
+						tempCandidate.component));
+				while (!tempPendingResults.isEmpty()
+						&& (tempPendingResults.size() > MAX_PENDING_RESULTS || tempPendingResults.getFirst().isDone())) {
+					aConsumer.addResult(tempPendingResults.removeFirst().get());
+				}
+			}
+			for (PendingResult tempPendingResult : tempPendingResults) {
+				aConsumer.addResult(tempPendingResult.get());
+			}
 		} catch (ClassNotFoundException exc) {
 			exc.printStackTrace();
 		}
+	}
 
-		return null;
+	/**
+	 * Computes how well the given path matches the {@link #filterPattern}. Matching is case-insensitive; a prefix match
+	 * ranks highest, followed by a match at the start of a path part, a substring match and finally a fuzzy match (all
+	 * characters of the pattern appear in the path in the same order), which ranks higher the closer together the
+	 * characters are.
+	 * 
+	 * @param aPath
+	 *            the path to check (may be null)
+	 * @return the score (higher is better), or -1 if the path does not match at all
+	 */
+	protected int computeMatchScore(String aPath) {
+		if (filterPattern == null || filterPattern.length() == 0) {
+			return 0;
+		}
+		if (aPath == null || aPath.length() == 0) {
+			return -1;
+		}
+
+		String tempPath = aPath.toLowerCase(Locale.ENGLISH);
+		String tempPattern = filterPattern.toLowerCase(Locale.ENGLISH);
+
+		if (tempPath.startsWith(tempPattern)) {
+			return SCORE_PREFIX - tempPath.length();
+		}
+
+		int tempIndex = tempPath.indexOf(tempPattern);
+		if (tempIndex > 0) {
+			if (tempPath.charAt(tempIndex - 1) == '.') {
+				return SCORE_PART_PREFIX - tempPath.length();
+			}
+			return SCORE_SUBSTRING - tempPath.length();
+		}
+
+		int tempPathIndex = 0;
+		int tempFirstMatch = -1;
+		for (int i = 0; i < tempPattern.length(); i++) {
+			tempPathIndex = tempPath.indexOf(tempPattern.charAt(i), tempPathIndex);
+			if (tempPathIndex < 0) {
+				return -1;
+			}
+			if (tempFirstMatch < 0) {
+				tempFirstMatch = tempPathIndex;
+			}
+			tempPathIndex++;
+		}
+
+		// the wider the pattern is spread over the path, the lower the score
+		int tempSpread = tempPathIndex - tempFirstMatch - tempPattern.length();
+		return Math.max(0, SCORE_FUZZY - tempSpread * 16 - tempPath.length());
 	}
 
 	/**
@@ -114,6 +248,22 @@ public class SwingAuthorAssistComponentQuery extends AbstractSwingAuthorAssistQu
 	 */
 	protected SwingAuthorAssistComponentQueryResult generateResult(String aShortPath, String aLongPath,
 			Component aComponent) {
+		return prepareResult(aShortPath, aLongPath, aComponent).get();
+	}
+
+	/**
+	 * Prepares a result object for a specific component. Everything which requires access to the component is done
+	 * immediately, while the overview image is encoded asynchronously by the {@link ImageEncoderPool}.
+	 * 
+	 * @param aShortPath
+	 *            the shortest possible path
+	 * @param aLongPath
+	 *            the long path
+	 * @param aComponent
+	 *            the component
+	 * @return the pending result
+	 */
+	protected PendingResult prepareResult(String aShortPath, String aLongPath, Component aComponent) {
 		StringBuilder tempHTMLDescription = new StringBuilder();
 		StringBuilder tempPlainDescription = new StringBuilder();
 
@@ -142,10 +292,11 @@ public class SwingAuthorAssistComponentQuery extends AbstractSwingAuthorAssistQu
 
 		tempPlainDescription.append("Enabled: " + aComponent.isEnabled() + COMPONENT_LINE_NEWLINE);
 
-		addHTMLComponentImageLinePart(tempHTMLDescription, aComponent);
+		BufferedImage tempImage = createComponentOverviewImage(aComponent);
 
-		return new SwingAuthorAssistComponentQueryResult(aLongPath, aShortPath, tempHTMLDescription.toString(),
-				tempPlainDescription.toString());
+		return new PendingResult(aLongPath, aShortPath, tempHTMLDescription.toString(),
+				tempPlainDescription.toString(), tempImage, tempImage != null ? ImageEncoderPool.getInstance()
+						.encodePNG(tempImage) : null);
 	}
 
 	/**
@@ -173,15 +324,14 @@ public class SwingAuthorAssistComponentQuery extends AbstractSwingAuthorAssistQu
 	}
 
 	/**
-	 * Adds a little overview image pointing out the position of the provided component in its host frame with a red
+	 * Creates a little overview image pointing out the position of the provided component in its host frame with a red
 	 * line.
 	 * 
-	 * @param aBuilder
-	 *            the string builder building the line
 	 * @param aComponent
 	 *            the component
+	 * @return the image, or null if none can be created
 	 */
-	protected void addHTMLComponentImageLinePart(StringBuilder aBuilder, Component aComponent) {
+	protected BufferedImage createComponentOverviewImage(Component aComponent) {
 		Window tempOuterContainer = null;
 		Container tempParent = aComponent.getParent();
 		while (tempParent != null) {
@@ -193,49 +343,12 @@ public class SwingAuthorAssistComponentQuery extends AbstractSwingAuthorAssistQu
 		}
 
 		if (tempOuterContainer != null && tempOuterContainer.getWidth() > 10 && tempOuterContainer.getHeight() > 10) {
-			// Scaled images of outer containers are stored in the provided
-			// cache for quick reuse
-			BufferedImage tempScaledOriginalImage = (BufferedImage) cacheMap.get(tempOuterContainer);
-			Float tempScalingFactor = null;
-
-			if (tempScaledOriginalImage != null) {
-				tempScalingFactor = (Float) cacheMap.get(tempScaledOriginalImage);
-			} else {
-				BufferedImage tempImage = new BufferedImage(tempOuterContainer.getWidth(),
-						tempOuterContainer.getHeight(), BufferedImage.TYPE_INT_RGB);
-				Graphics2D tempGraphics = (Graphics2D) tempImage.getGraphics();
-				tempOuterContainer.paintAll(tempGraphics);
-
-				float tempScalingFactor1 = (float) getComponentLineOverviewImgMaxWidth() / (float) tempImage.getWidth();
-				float tempScalingFactor2 = (float) getComponentLineOverviewImgMaxHeight()
-						/ (float) tempImage.getHeight();
-				tempScalingFactor = tempScalingFactor1 < tempScalingFactor2 ? tempScalingFactor1 : tempScalingFactor2;
-
-				if (tempScalingFactor >= 1.0) {
-					tempScalingFactor = 1.0f;
-					tempScaledOriginalImage = tempImage;
-				} else {
-					if (tempScalingFactor < getComponentLineOverviewMinScaling()) {
-						tempScalingFactor = getComponentLineOverviewMinScaling();
-					}
-
-					tempScaledOriginalImage = new BufferedImage(Math.round((float) tempImage.getWidth()
-							* tempScalingFactor), Math.round((float) tempImage.getHeight() * tempScalingFactor),
-							BufferedImage.TYPE_INT_RGB);
-					tempGraphics = (Graphics2D) tempScaledOriginalImage.getGraphics();
-					tempGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
-							RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-					tempGraphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-					tempGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-					tempGraphics.drawImage(tempImage, 0, 0, tempScaledOriginalImage.getWidth(),
-							tempScaledOriginalImage.getHeight(), 0, 0, tempImage.getWidth(), tempImage.getHeight(),
-							null);
-					tempGraphics.dispose();
-				}
-
-				cacheMap.put(tempOuterContainer, tempScaledOriginalImage);
-				cacheMap.put(tempScaledOriginalImage, tempScalingFactor);
-			}
+			// Scaled images of outer containers are shared across queries; the component location is drawn onto a copy
+			Thumbnail tempThumbnail = WindowThumbnailCache.getInstance().getThumbnail(tempOuterContainer,
+					getComponentLineOverviewImgMaxWidth(), getComponentLineOverviewImgMaxHeight(),
+					getComponentLineOverviewMinScaling());
+			BufferedImage tempScaledOriginalImage = tempThumbnail.getImage();
+			float tempScalingFactor = tempThumbnail.getScalingFactor();
 
 			// Create a copy of the scaled image for addition of component
 			// location info
@@ -287,20 +400,10 @@ public class SwingAuthorAssistComponentQuery extends AbstractSwingAuthorAssistQu
 			tempGraphics.drawRect(tempComponentX, tempComponentY, tempBorderWidth, tempBorderHeight);
 			tempGraphics.dispose();
 
-			// Encode the final image in base64 and place it in the HTML as an
-			// "inline css" image
-			ByteArrayOutputStream tempOutBuffer = new ByteArrayOutputStream();
-			try {
-				ImageIO.write(tempScaledImage, "PNG", tempOutBuffer);
-				final byte[] tempByteArray = tempOutBuffer.toByteArray();
-				String tempEncodedData = Base64.encodeBytes(tempByteArray);
-				aBuilder.append("<div style=\"width: " + tempScaledImage.getWidth() + "px; height: "
-						+ tempScaledImage.getHeight() + "px; background: #000 url(data:image/png;base64,"
-						+ tempEncodedData + ");\"/>");
-			} catch (IOException exc) {
-				exc.printStackTrace();
-			}
+			return tempScaledImage;
 		}
+
+		return null;
 	}
 
 	/**
@@ -326,6 +429,156 @@ public class SwingAuthorAssistComponentQuery extends AbstractSwingAuthorAssistQu
 		return 0.33f;
 	}
 
+	/**
+	 * A result whose overview image is still being encoded.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	protected static class PendingResult {
+
+		/**
+		 * The long component path.
+		 */
+		private String longPath;
+
+		/**
+		 * The shortest unique component path.
+		 */
+		private String shortPath;
+
+		/**
+		 * The HTML-enhanced description.
+		 */
+		private String htmlDescription;
+
+		/**
+		 * The plaintext description.
+		 */
+		private String plainDescription;
+
+		/**
+		 * The overview image (may be null).
+		 */
+		private BufferedImage image;
+
+		/**
+		 * The future providing the PNG data of the image (null if there is no image).
+		 */
+		private Future<byte[]> imageData;
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param aLongPath
+		 *            the long component path
+		 * @param aShortPath
+		 *            the shortest unique component path
+		 * @param aHtmlDescription
+		 *            the HTML-enhanced description
+		 * @param aPlainDescription
+		 *            the plaintext description
+		 * @param anImage
+		 *            the overview image (may be null)
+		 * @param someImageData
+		 *            the future providing the PNG data of the image (may be null)
+		 */
+		public PendingResult(String aLongPath, String aShortPath, String aHtmlDescription, String aPlainDescription,
+				BufferedImage anImage, Future<byte[]> someImageData) {
+			longPath = aLongPath;
+			shortPath = aShortPath;
+			htmlDescription = aHtmlDescription;
+			plainDescription = aPlainDescription;
+			image = anImage;
+			imageData = someImageData;
+		}
+
+		/**
+		 * Whether the result is complete (the image has been encoded).
+		 * 
+		 * @return true if {@link #get()} will not block
+		 */
+		public boolean isDone() {
+			return imageData == null || imageData.isDone();
+		}
+
+		/**
+		 * Waits for the image to be encoded and returns the final result. If encoding failed, the result is returned
+		 * without the image.
+		 * 
+		 * @return the result
+		 */
+		public SwingAuthorAssistComponentQueryResult get() {
+			if (imageData != null) {
+				try {
+					return new SwingAuthorAssistComponentQueryResult(longPath, shortPath, htmlDescription,
+							plainDescription, imageData.get(), image.getWidth(), image.getHeight());
+				} catch (InterruptedException exc) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException exc) {
+					exc.getCause().printStackTrace();
+				}
+			}
+
+			return new SwingAuthorAssistComponentQueryResult(longPath, shortPath, htmlDescription, plainDescription);
+		}
+	}
+
+	/**
+	 * A component matching the query, along with its paths and its score.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	private static class RankedComponent implements Comparable<RankedComponent> {
+
+		/**
+		 * The component.
+		 */
+		private Component component;
+
+		/**
+		 * The long component path.
+		 */
+		private String longPath;
+
+		/**
+		 * The shortest unique component path.
+		 */
+		private String shortPath;
+
+		/**
+		 * The match score.
+		 */
+		private int score;
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param aComponent
+		 *            the component
+		 * @param aLongPath
+		 *            the long component path
+		 * @param aShortPath
+		 *            the shortest unique component path
+		 * @param aScore
+		 *            the match score
+		 */
+		RankedComponent(Component aComponent, String aLongPath, String aShortPath, int aScore) {
+			component = aComponent;
+			longPath = aLongPath;
+			shortPath = aShortPath;
+			score = aScore;
+		}
+
+		@Override
+		public int compareTo(RankedComponent anOther) {
+			return anOther.score < score ? -1 : (anOther.score == score ? 0 : 1);
+		}
+	}
+
 	/**
 	 * The result for {@link SwingAuthorAssistComponentQuery}s.
 	 * 
@@ -360,6 +613,21 @@ public class SwingAuthorAssistComponentQuery extends AbstractSwingAuthorAssistQu
 		 */
 		private String plainDescription;
 
+		/**
+		 * The overview image as PNG data (may be null).
+		 */
+		private byte[] imageData;
+
+		/**
+		 * The width of the overview image.
+		 */
+		private int imageWidth;
+
+		/**
+		 * The height of the overview image.
+		 */
+		private int imageHeight;
+
 		/**
 		 * Creates an instance.
 		 * 
@@ -380,6 +648,32 @@ public class SwingAuthorAssistComponentQuery extends AbstractSwingAuthorAssistQu
 			plainDescription = aPlainDescription;
 		}
 
+		/**
+		 * Creates an instance with an overview image.
+		 * 
+		 * @param aLongPath
+		 *            the long component path
+		 * @param aShortPath
+		 *            the shortest unique component path
+		 * @param aHtmlDescription
+		 *            the HTML-enhanced description (without the image)
+		 * @param aPlainDescription
+		 *            the plaintext description
+		 * @param someImageData
+		 *            the overview image as PNG data
+		 * @param anImageWidth
+		 *            the width of the overview image
+		 * @param anImageHeight
+		 *            the height of the overview image
+		 */
+		public SwingAuthorAssistComponentQueryResult(String aLongPath, String aShortPath, String aHtmlDescription,
+				String aPlainDescription, byte[] someImageData, int anImageWidth, int anImageHeight) {
+			this(aLongPath, aShortPath, aHtmlDescription, aPlainDescription);
+			imageData = someImageData;
+			imageWidth = anImageWidth;
+			imageHeight = anImageHeight;
+		}
+
 		public String getLongPath() {
 			return longPath;
 		}
@@ -388,7 +682,21 @@ public class SwingAuthorAssistComponentQuery extends AbstractSwingAuthorAssistQu
 			return shortPath;
 		}
 
+		/**
+		 * Returns the HTML-enhanced description, including the overview image (if there is one) as an inline image.
+		 * 
+		 * @return the description
+		 */
 		public String getHtmlDescription() {
+			if (imageData == null) {
+				return htmlDescription;
+			}
+
+			return htmlDescription + "<div style=\"width: " + imageWidth + "px; height: " + imageHeight
+					+ "px; background: #000 url(data:image/png;base64," + Base64.encodeBytes(imageData) + ");\"/>";
+		}
+
+		public String getHtmlDescriptionWithoutImage() {
 			return htmlDescription;
 		}
 
@@ -396,6 +704,18 @@ public class SwingAuthorAssistComponentQuery extends AbstractSwingAuthorAssistQu
 			return plainDescription;
 		}
 
+		public byte[] getImageData() {
+			return imageData;
+		}
+
+		public int getImageWidth() {
+			return imageWidth;
+		}
+
+		public int getImageHeight() {
+			return imageHeight;
+		}
+
 	}
 
 }
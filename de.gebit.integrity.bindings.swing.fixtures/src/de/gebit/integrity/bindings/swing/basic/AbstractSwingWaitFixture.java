@@ -71,7 +71,25 @@ public abstract class AbstractSwingWaitFixture<C extends JComponent> extends Abs
 			tempTimeout = (int) (aTimeout * 1000.0);
 		}
 
-		new EventQueueSynchronizer().waitForEventQueueMultipleTimes(tempNumberOfTimes, tempTimeout);
+		EventQueueSynchronizer.getInstance().waitForEventQueueMultipleTimes(tempTimeout, tempNumberOfTimes);
+	}
+
+	/**
+	 * Waits for the AWT event queue to become idle, that is, to process all pending events including those which are
+	 * added while waiting.
+	 * 
+	 * @param aTimeout
+	 *            the timeout in seconds (default is {@link #getEventQueueWaitTimeout()})
+	 * @return true if the event queue became idle, false if the timeout was hit
+	 */
+	@FixtureMethod(description = "Wait for AWT Event Queue to become idle")
+	public boolean waitForEventQueueIdle(@FixtureParameter(name = "timeout") Double aTimeout) {
+		int tempTimeout = getEventQueueWaitTimeout();
+		if (aTimeout != null) {
+			tempTimeout = (int) (aTimeout * 1000.0);
+		}
+
+		return EventQueueSynchronizer.getInstance().waitForIdle(tempTimeout);
 	}
 
 }
@@ -10,8 +10,10 @@ package de.gebit.integrity.bindings.swing.exceptions;
 import java.awt.Component;
 import java.awt.Window;
 import java.util.List;
+import java.util.Map;
 
 import de.gebit.integrity.bindings.swing.AbstractSwingComponentHandler;
+import de.gebit.integrity.bindings.swing.AbstractSwingComponentHandler.PathInfo;
 
 /**
  * Thrown if there are multiple components matching a given path. This exception contains very detailed, human-readable
@@ -27,6 +29,13 @@ public class AmbiguousComponentPathException extends AbstractSwingComponentPathE
 	 */
 	private static final long serialVersionUID = 4448538076639107014L;
 
+	/**
+	 * The maximum time in milliseconds to wait for the event dispatching thread when calculating the uniquified paths
+	 * for the detail string. Lookups often fail exactly when the event dispatching thread is blocked, so building the
+	 * message must not wait indefinitely.
+	 */
+	protected static final long PATH_INFO_TIMEOUT = 5000;
+
 	/**
 	 * The components which were found.
 	 */
@@ -51,13 +60,22 @@ public class AmbiguousComponentPathException extends AbstractSwingComponentPathE
 
 	@Override
 	protected void buildDetailString(StringBuilder aStringBuilder, AbstractSwingComponentHandler aComponentHandler) {
+		Map<Component, PathInfo> tempPathInfos = aComponentHandler.createComponentPathInfos(components,
+				PATH_INFO_TIMEOUT);
+
 		int tempCount = 0;
 		for (Component tempComponent : components) {
 			tempCount++;
 			aStringBuilder.append(tempCount + ": ");
-			String tempPath = aComponentHandler.createComponentPath(tempComponent);
-			String tempUniquifiedPath = aComponentHandler.createUniquifiedComponentPath(tempComponent);
-			aStringBuilder.append(tempPath + " (" + tempUniquifiedPath + ")");
+			if (tempPathInfos != null) {
+				String tempPath = tempPathInfos.get(tempComponent).getPath();
+				String tempUniquifiedPath = tempPathInfos.get(tempComponent).getUniquifiedPath();
+				aStringBuilder.append(tempPath + " (" + tempUniquifiedPath + ")");
+			} else {
+				// event queue is blocked: fall back to the plain path
+				aStringBuilder.append(aComponentHandler.createComponentPath(tempComponent)
+						+ " (unique path not available, event queue did not respond)");
+			}
 			aStringBuilder.append(NEWLINE);
 
 			Component tempComponentInFocus = tempComponent.getParent();
@@ -7,10 +7,16 @@
  *******************************************************************************/
 package de.gebit.integrity.bindings.swing.launch;
 
+import java.awt.AWTEvent;
 import java.awt.Component;
 import java.awt.EventQueue;
 import java.awt.Frame;
+import java.awt.Toolkit;
 import java.awt.Window;
+import java.awt.event.AWTEventListener;
+import java.awt.event.ContainerEvent;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.WindowEvent;
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
@@ -181,13 +187,35 @@ public class SwingApplicationLaunchFixture extends JavaApplicationLaunchFixture
 	}
 
 	/**
-	 * Waits for the applications' frame(s) to come up after launch.
+	 * The interval in milliseconds in which the waiters check their condition even if no window, hierarchy or container
+	 * events have been received.
+	 */
+	protected static final long FALLBACK_POLL_INTERVAL = 250;
+
+	/**
+	 * The event mask for all events which may indicate that a frame or component the waiters are waiting for has
+	 * appeared.
+	 */
+	protected static final long UI_CHANGE_EVENT_MASK = AWTEvent.WINDOW_EVENT_MASK | AWTEvent.HIERARCHY_EVENT_MASK
+			| AWTEvent.CONTAINER_EVENT_MASK;
+
+	/**
+	 * The component handler used to find components to wait for.
+	 */
+	private final AbstractSwingComponentHandler componentHandler = new AbstractSwingComponentHandler() {
+	};
+
+	/**
+	 * Base class for threads which wait for something to appear in the application. The waiting condition is checked
+	 * whenever windows are opened or components are added or shown, so the wait ends right after the awaited frame or
+	 * component has appeared. As a fallback, the condition is checked every {@link #FALLBACK_POLL_INTERVAL}
+	 * milliseconds.
 	 * 
 	 * 
 	 * @author Rene Schneider - initial API and implementation
 	 * 
 	 */
-	protected class FrameWaiter extends Thread {
+	protected abstract class AbstractUIWaiter extends Thread implements AWTEventListener {
 
 		/**
 		 * The nanoseconds to wait for.
@@ -195,59 +223,84 @@ public class SwingApplicationLaunchFixture extends JavaApplicationLaunchFixture
 		private long timeoutNanos;
 
 		/**
-		 * The number of frames to wait for.
+		 * Whether the waiting is considered successful.
 		 */
-		private int numberOfFrames;
+		private boolean waitSuccessful;
 
 		/**
-		 * Whether the waiting is considered successful.
+		 * The lock guarding {@link #eventCount} and used to wait for new events. The thread object itself is not used,
+		 * since {@link Thread#join()} waits and gets notified on it as well.
 		 */
-		private boolean waitSuccessful;
+		private final Object eventLock = new Object();
+
+		/**
+		 * The number of relevant events received so far. Access must be synchronized on {@link #eventLock}.
+		 */
+		private long eventCount;
 
 		/**
 		 * Creates an instance.
+		 * 
+		 * @param aTimeout
+		 *            the timeout in milliseconds
 		 */
-		public FrameWaiter(long aTimeout, int aNumberOfFrames) {
+		public AbstractUIWaiter(long aTimeout) {
 			timeoutNanos = aTimeout * 1000000L;
-			numberOfFrames = aNumberOfFrames;
 		}
 
 		@Override
-		public void run() {
-			long tempStart = System.nanoTime();
-
-			while (tempStart + timeoutNanos > System.nanoTime()) {
-				if (areFramesVisible() && isEventThreadReactive()) {
-					waitSuccessful = true;
-					return;
+		public void eventDispatched(AWTEvent anEvent) {
+			if (anEvent.getID() == WindowEvent.WINDOW_OPENED || anEvent.getID() == ContainerEvent.COMPONENT_ADDED
+					|| (anEvent instanceof HierarchyEvent
+							&& (((HierarchyEvent) anEvent).getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0)) {
+				synchronized (eventLock) {
+					eventCount++;
+					eventLock.notifyAll();
 				}
+			}
+		}
 
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException exc) {
-					// ignored
+		@Override
+		public void run() {
+			Toolkit.getDefaultToolkit().addAWTEventListener(this, UI_CHANGE_EVENT_MASK);
+			try {
+				long tempStart = System.nanoTime();
+
+				while (tempStart + timeoutNanos > System.nanoTime()) {
+					long tempEventCount;
+					synchronized (eventLock) {
+						tempEventCount = eventCount;
+					}
+
+					if (isConditionFulfilled() && isEventThreadReactive()) {
+						waitSuccessful = true;
+						return;
+					}
+
+					synchronized (eventLock) {
+						long tempLeft = (tempStart + timeoutNanos - System.nanoTime()) / 1000000L;
+						if (eventCount == tempEventCount && tempLeft > 0) {
+							try {
+								eventLock.wait(Math.min(tempLeft, FALLBACK_POLL_INTERVAL));
+							} catch (InterruptedException exc) {
+								// ignored
+							}
+						}
+					}
 				}
-			}
 
-			waitSuccessful = false;
+				waitSuccessful = false;
+			} finally {
+				Toolkit.getDefaultToolkit().removeAWTEventListener(this);
+			}
 		}
 
 		/**
-		 * Checks whether enough frames have become visible.
+		 * Checks whether the thing to wait for has appeared.
 		 * 
-		 * @return true or false
+		 * @return true if the waiting can end
 		 */
-		protected boolean areFramesVisible() {
-			int tempVisibleCount = 0;
-
-			for (Frame tempFrame : Frame.getFrames()) {
-				if (tempFrame.isVisible()) {
-					tempVisibleCount++;
-				}
-			}
-
-			return (tempVisibleCount >= numberOfFrames);
-		}
+		protected abstract boolean isConditionFulfilled();
 
 		/**
 		 * Wait for the thread to exit and check the success.
@@ -267,55 +320,76 @@ public class SwingApplicationLaunchFixture extends JavaApplicationLaunchFixture
 	}
 
 	/**
-	 * Waits for a specific component to come up after launch.
+	 * Waits for the applications' frame(s) to come up after launch.
 	 * 
 	 * 
 	 * @author Rene Schneider - initial API and implementation
 	 * 
 	 */
-	protected class ComponentWaiter extends Thread {
+	protected class FrameWaiter extends AbstractUIWaiter {
 
 		/**
-		 * The nanoseconds to wait for.
+		 * The number of frames to wait for.
 		 */
-		private long timeoutNanos;
+		private int numberOfFrames;
 
 		/**
-		 * The components' path.
+		 * Creates an instance.
 		 */
-		private String componentPath;
+		public FrameWaiter(long aTimeout, int aNumberOfFrames) {
+			super(aTimeout);
+			numberOfFrames = aNumberOfFrames;
+		}
+
+		@Override
+		protected boolean isConditionFulfilled() {
+			return areFramesVisible();
+		}
 
 		/**
-		 * Whether the waiting is considered successful.
+		 * Checks whether enough frames have become visible.
+		 * 
+		 * @return true or false
 		 */
-		private boolean waitSuccessful;
+		protected boolean areFramesVisible() {
+			int tempVisibleCount = 0;
+
+			for (Frame tempFrame : Frame.getFrames()) {
+				if (tempFrame.isVisible()) {
+					tempVisibleCount++;
+				}
+			}
+
+			return (tempVisibleCount >= numberOfFrames);
+		}
+
+	}
+
+	/**
+	 * Waits for a specific component to come up after launch.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	protected class ComponentWaiter extends AbstractUIWaiter {
+
+		/**
+		 * The components' path.
+		 */
+		private String componentPath;
 
 		/**
 		 * Creates an instance.
 		 */
 		public ComponentWaiter(long aTimeout, String aComponentPath) {
-			timeoutNanos = aTimeout * 1000000L;
+			super(aTimeout);
 			componentPath = aComponentPath;
 		}
 
 		@Override
-		public void run() {
-			long tempStart = System.nanoTime();
-
-			while (tempStart + timeoutNanos > System.nanoTime()) {
-				if (componentExists() && isEventThreadReactive()) {
-					waitSuccessful = true;
-					return;
-				}
-
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException exc) {
-					// ignored
-				}
-			}
-
-			waitSuccessful = false;
+		protected boolean isConditionFulfilled() {
+			return componentExists();
 		}
 
 		/**
@@ -324,27 +398,11 @@ public class SwingApplicationLaunchFixture extends JavaApplicationLaunchFixture
 		 * @return true or false
 		 */
 		protected boolean componentExists() {
-			List<Component> tempList = new AbstractSwingComponentHandler() {
-			}.findComponents(componentPath, null, null);
+			List<Component> tempList = componentHandler.findComponents(componentPath, null, null);
 
 			return !(tempList.isEmpty());
 		}
 
-		/**
-		 * Wait for the thread to exit and check the success.
-		 * 
-		 * @return
-		 */
-		public boolean wasSuccessful() {
-			try {
-				join();
-			} catch (InterruptedException exc) {
-				// ignore
-			}
-
-			return waitSuccessful;
-		}
-
 	}
 
 	/**
@@ -7,8 +7,9 @@
  *******************************************************************************/
 package de.gebit.integrity.bindings.swing.tables;
 
+import java.util.concurrent.Callable;
+
 import javax.swing.JTable;
-import javax.swing.table.TableModel;
 
 import de.gebit.integrity.bindings.swing.AbstractSwingFixture;
 import de.gebit.integrity.bindings.swing.exceptions.AmbiguousComponentPathException;
@@ -64,7 +65,26 @@ public class SwingTableCellContentFixture extends AbstractSwingFixture implement
 	}
 
 	/**
-	 * Actually retrieves the table content.
+	 * Gets the rendered text at a specific row and column in the given table. This is the text the user actually sees,
+	 * as determined by the cell renderer of the table (formatted dates, numbers and the like).
+	 * 
+	 * @param aComponentPath
+	 *            the path to the component
+	 * @param aRow
+	 *            the row number (one-based!)
+	 * @param aColumn
+	 *            the column number (one-based!)
+	 */
+	@FixtureMethod(descriptionCall = "Get the rendered text from table '$name$' at row $row$, column $column$", descriptionTest = "Check the rendered text in table '$name$' at row $row$, column $column$")
+	public Object getTableCellRenderedText(
+			@FixtureParameter(name = COMPONENT_PATH_PARAMETER_NAME) String aComponentPath,
+			@FixtureParameter(name = "row") Integer aRow, @FixtureParameter(name = "column") Integer aColumn) {
+		return internalGetTableContent(aComponentPath, aRow, aColumn, true);
+	}
+
+	/**
+	 * Actually retrieves the table content. Row and column are interpreted as seen by the user, that is, sorting,
+	 * filtering and reordered columns are taken into account.
 	 * 
 	 * @param aComponentPath
 	 *            the path to the component
@@ -76,19 +96,46 @@ public class SwingTableCellContentFixture extends AbstractSwingFixture implement
 	 */
 	protected Object internalGetTableContent(String aComponentPath, Integer aRow, Integer aColumn)
 			throws AmbiguousComponentPathException, InvalidComponentPathException {
-		JTable tempTable = findComponentGuarded(aComponentPath, JTable.class, null);
-		TableModel tempModel = tempTable.getModel();
+		return internalGetTableContent(aComponentPath, aRow, aColumn, false);
+	}
 
-		int tempRow = aRow != null ? aRow - 1 : 0;
-		int tempColumn = aColumn != null ? aColumn - 1 : 0;
+	/**
+	 * Actually retrieves the table content or the rendered text. Row and column are interpreted as seen by the user,
+	 * that is, sorting, filtering and reordered columns are taken into account.
+	 * 
+	 * @param aComponentPath
+	 *            the path to the component
+	 * @param aRow
+	 *            the row number (one-based!)
+	 * @param aColumn
+	 *            the column number (one-based!)
+	 * @param aRenderedFlag
+	 *            whether to retrieve the rendered text instead of the model value
+	 * @return the content
+	 */
+	protected Object internalGetTableContent(String aComponentPath, Integer aRow, Integer aColumn,
+			final boolean aRenderedFlag) throws AmbiguousComponentPathException, InvalidComponentPathException {
+		final JTable tempTable = findComponentGuarded(aComponentPath, JTable.class, null);
 
-		if (tempRow >= 0 && tempRow < tempTable.getRowCount()) {
-			if (tempColumn >= 0 && tempColumn < tempTable.getColumnCount()) {
-				return tempModel.getValueAt(tempRow, tempColumn);
-			}
-		}
+		final int tempRow = aRow != null ? aRow - 1 : 0;
+		final int tempColumn = aColumn != null ? aColumn - 1 : 0;
 
-		return null;
+		// A single cell is read directly, without copying the row into a snapshot
+		return callOnEventQueue(new Callable<Object>() {
+
+			@Override
+			public Object call() {
+				if (tempRow < 0 || tempRow >= tempTable.getRowCount() || tempColumn < 0
+						|| tempColumn >= tempTable.getColumnCount()) {
+					return null;
+				}
+
+				Object tempValue = tempTable.getModel().getValueAt(tempTable.convertRowIndexToModel(tempRow),
+						tempTable.convertColumnIndexToModel(tempColumn));
+				return aRenderedFlag ? TableSnapshot.getRenderedText(tempTable, tempRow, tempColumn, tempValue)
+						: tempValue;
+			}
+		});
 	}
 
 }
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing.tables;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+import javax.swing.JTable;
+
+import de.gebit.integrity.bindings.swing.AbstractSwingFixture;
+import de.gebit.integrity.bindings.swing.exceptions.AmbiguousComponentPathException;
+import de.gebit.integrity.bindings.swing.exceptions.InvalidComponentPathException;
+import de.gebit.integrity.fixtures.CustomProposalFixture;
+import de.gebit.integrity.fixtures.FixtureMethod;
+import de.gebit.integrity.fixtures.FixtureParameter;
+
+/**
+ * This fixture compares the whole content of {@link JTable} components with an expected grid in a single call. The
+ * table is copied once on the event dispatching thread (see {@link TableSnapshot}) and then compared cell by cell; all
+ * differences are reported together as an extended result.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public class SwingTableCompareFixture extends AbstractSwingFixture<JTable> implements CustomProposalFixture {
+
+	/**
+	 * The default separator between the cells of an expected row.
+	 */
+	public static final String DEFAULT_SEPARATOR = "|";
+
+	/**
+	 * The maximum number of differences reported in detail.
+	 */
+	protected static final int MAX_REPORTED_DIFFERENCES = 100;
+
+	/**
+	 * The differences found by the last comparison.
+	 */
+	protected List<String> differences = new ArrayList<String>();
+
+	/**
+	 * The total number of differences found by the last comparison (may be larger than the number of differences
+	 * recorded in {@link #differences}).
+	 */
+	protected int differenceCount;
+
+	/**
+	 * Compares the text of all cells in the given table with the expected rows. Each expected row is given as one
+	 * string, with the cells separated by the separator. Cell texts are compared after trimming whitespace; empty cells
+	 * match cells containing null. Rows and columns are compared as seen by the user, that is, sorting, filtering and
+	 * reordered columns are taken into account.
+	 * 
+	 * @param aComponentPath
+	 *            the path to the component
+	 * @param someRows
+	 *            the expected rows
+	 * @param aSeparator
+	 *            the separator between cells (default is {@link #DEFAULT_SEPARATOR})
+	 * @return true if the table matches exactly, false otherwise (the differences are provided as an extended result)
+	 */
+	@FixtureMethod(descriptionCall = "Compare the text in table '$name$' with the expected rows", descriptionTest = "Check the whole text in table '$name$'")
+	public Boolean compareTableText(@FixtureParameter(name = COMPONENT_PATH_PARAMETER_NAME) String aComponentPath,
+			@FixtureParameter(name = "rows") String[] someRows, @FixtureParameter(name = "separator") String aSeparator)
+			throws AmbiguousComponentPathException, InvalidComponentPathException {
+		return compareTable(aComponentPath, someRows, aSeparator, false);
+	}
+
+	/**
+	 * Compares a snapshot with the expected rows, recording all differences.
+	 * 
+	 * @param aSnapshot
+	 *            the snapshot
+	 * @param someRows
+	 *            the expected rows
+	 * @param aSeparator
+	 *            the separator between cells
+	 * @return true if the snapshot matches exactly
+	 */
+	protected Boolean compareSnapshot(TableSnapshot aSnapshot, String[] someRows, String aSeparator) {
+		differences.clear();
+		differenceCount = 0;
+
+		String[] tempRows = someRows != null ? someRows : new String[0];
+		Pattern tempSeparator = Pattern.compile(Pattern.quote(aSeparator != null ? aSeparator : DEFAULT_SEPARATOR));
+
+		if (tempRows.length != aSnapshot.getTableRowCount()) {
+			addDifference("Expected " + tempRows.length + " rows, but found " + aSnapshot.getTableRowCount());
+		}
+
+		int tempCommonRowCount = Math.min(tempRows.length, aSnapshot.getTableRowCount());
+		for (int i = 0; i < tempCommonRowCount; i++) {
+			String[] tempExpectedCells = tempSeparator.split(tempRows[i] != null ? tempRows[i] : "", -1);
+			if (tempExpectedCells.length != aSnapshot.getColumnCount()) {
+				addDifference("Row " + (i + 1) + ": expected " + tempExpectedCells.length + " cells, but found "
+						+ aSnapshot.getColumnCount());
+			}
+
+			int tempCommonColumnCount = Math.min(tempExpectedCells.length, aSnapshot.getColumnCount());
+			for (int j = 0; j < tempCommonColumnCount; j++) {
+				String tempExpected = tempExpectedCells[j].trim();
+				Object tempValue = aSnapshot.getValueAt(i, j);
+				String tempActual = tempValue != null ? tempValue.toString().trim() : "";
+				if (!tempExpected.equals(tempActual)) {
+					addDifference("Row " + (i + 1) + ", column " + (j + 1) + " ("
+							+ aSnapshot.getColumnKeys().getColumnName(j) + "): expected '" + tempExpected
+							+ "', but found '" + tempActual + "'");
+				}
+			}
+		}
+
+		return differenceCount == 0;
+	}
+
+	/**
+	 * Compares the rendered text of all cells in the given table with the expected rows. These are the texts the user
+	 * actually sees, as determined by the cell renderers of the table (formatted dates, numbers and the like). The
+	 * expected rows are given and compared just like in {@link #compareTableText(String, String[], String)}.
+	 * 
+	 * @param aComponentPath
+	 *            the path to the component
+	 * @param someRows
+	 *            the expected rows
+	 * @param aSeparator
+	 *            the separator between cells (default is {@link #DEFAULT_SEPARATOR})
+	 * @return true if the table matches exactly, false otherwise (the differences are provided as an extended result)
+	 */
+	@FixtureMethod(descriptionCall = "Compare the rendered text in table '$name$' with the expected rows", descriptionTest = "Check the whole rendered text in table '$name$'")
+	public Boolean compareTableRenderedText(
+			@FixtureParameter(name = COMPONENT_PATH_PARAMETER_NAME) String aComponentPath,
+			@FixtureParameter(name = "rows") String[] someRows, @FixtureParameter(name = "separator") String aSeparator)
+			throws AmbiguousComponentPathException, InvalidComponentPathException {
+		return compareTable(aComponentPath, someRows, aSeparator, true);
+	}
+
+	/**
+	 * Actually compares the table with the expected rows.
+	 * 
+	 * @param aComponentPath
+	 *            the path to the component
+	 * @param someRows
+	 *            the expected rows
+	 * @param aSeparator
+	 *            the separator between cells
+	 * @param aRenderedFlag
+	 *            whether to compare the rendered texts instead of the model values
+	 * @return true if the table matches exactly
+	 */
+	protected Boolean compareTable(String aComponentPath, String[] someRows, String aSeparator,
+			final boolean aRenderedFlag) throws AmbiguousComponentPathException, InvalidComponentPathException {
+		// Reset first, so a failed lookup doesn't report the differences of an earlier comparison
+		differences.clear();
+		differenceCount = 0;
+
+		final JTable tempTable = findComponentGuarded(aComponentPath, JTable.class, null);
+		TableSnapshot tempSnapshot = callOnEventQueue(new Callable<TableSnapshot>() {
+
+			@Override
+			public TableSnapshot call() {
+				// The copy is compared right away, so it doesn't need to track later changes of the table
+				TableSnapshot tempResult = new TableSnapshot(tempTable, 0, Integer.MAX_VALUE, aRenderedFlag);
+				tempResult.dispose();
+				return tempResult;
+			}
+		});
+
+		return compareSnapshot(tempSnapshot, someRows, aSeparator);
+	}
+
+	/**
+	 * Records a difference.
+	 * 
+	 * @param aDifference
+	 *            the description of the difference
+	 */
+	protected void addDifference(String aDifference) {
+		if (differenceCount < MAX_REPORTED_DIFFERENCES) {
+			differences.add(aDifference);
+		}
+		differenceCount++;
+	}
+
+	@Override
+	public List<ExtendedResult> provideExtendedResults(FixtureInvocationResult anInvocationResult) {
+		List<ExtendedResult> tempResults = super.provideExtendedResults(anInvocationResult);
+
+		if (differenceCount > 0) {
+			StringBuilder tempText = new StringBuilder();
+			tempText.append(differenceCount).append(differenceCount == 1 ? " difference:" : " differences:");
+			for (String tempDifference : differences) {
+				tempText.append('\n').append(tempDifference);
+			}
+			if (differenceCount > differences.size()) {
+				tempText.append("\n... and ").append(differenceCount - differences.size()).append(" more");
+			}
+
+			if (tempResults == null) {
+				tempResults = new ArrayList<ExtendedResult>();
+			}
+			tempResults.add(0, new ExtendedResultText(tempText.toString()));
+		}
+
+		return tempResults;
+	}
+
+}
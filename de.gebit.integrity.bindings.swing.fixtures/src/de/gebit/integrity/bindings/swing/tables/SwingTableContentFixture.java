@@ -10,9 +10,9 @@ package de.gebit.integrity.bindings.swing.tables;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 import javax.swing.JTable;
-import javax.swing.table.TableModel;
 
 import de.gebit.integrity.bindings.swing.AbstractSwingFixture;
 import de.gebit.integrity.bindings.swing.exceptions.AmbiguousComponentPathException;
@@ -38,6 +38,18 @@ public class SwingTableContentFixture extends AbstractSwingFixture
 	 */
 	protected int nextRow;
 
+	/**
+	 * The snapshot of the table content used to serve row queries. In tabletests, the whole table is copied when the
+	 * first row is requested, and all following rows are read from the copy, as long as the table model doesn't
+	 * change. The snapshot is released as soon as the last row has been read.
+	 */
+	protected TableSnapshot tableSnapshot;
+
+	/**
+	 * The component path of the table in {@link #tableSnapshot}.
+	 */
+	protected String tableSnapshotPath;
+
 	/**
 	 * Gets the table content (cell content as object) at a specific row.
 	 * 
@@ -68,6 +80,23 @@ public class SwingTableContentFixture extends AbstractSwingFixture
 		return new SwingTableRowResult(internalGetTableRowText(aComponentPath, aRow));
 	}
 
+	/**
+	 * Gets the rendered text at a specific row in the given table. These are the texts the user actually sees, as
+	 * determined by the cell renderers of the table (formatted dates, numbers and the like).
+	 * 
+	 * @param aComponentPath
+	 *            the path to the component
+	 * @param aRow
+	 *            the row number (one-based!), omit for automatic row calculation in tabletests
+	 */
+	@FixtureMethod(description = "Check the rendered text in table '$name$'")
+	public SwingTableRowResult getTableRenderedText(
+			@FixtureParameter(name = COMPONENT_PATH_PARAMETER_NAME) String aComponentPath,
+			@FixtureParameter(name = "row") Integer aRow)
+			throws AmbiguousComponentPathException, EventQueueTimeoutException, InvalidComponentPathException {
+		return new SwingTableRowResult(internalGetTableRowContent(aComponentPath, aRow, true));
+	}
+
 	/**
 	 * A result object which encapsulates the named arbitrary results from a call to
 	 * {@link SwingTableContentFixture#getTableContent(String, Integer)} or
@@ -108,7 +137,8 @@ public class SwingTableContentFixture extends AbstractSwingFixture
 	}
 
 	/**
-	 * Actually retrieves the table content.
+	 * Actually retrieves the table content. Rows and columns are interpreted as seen by the user, that is, sorting,
+	 * filtering and reordered columns are taken into account.
 	 * 
 	 * @param aComponentPath
 	 *            the path to the component
@@ -118,25 +148,104 @@ public class SwingTableContentFixture extends AbstractSwingFixture
 	 */
 	protected Map<String, Object> internalGetTableRowContent(String aComponentPath, Integer aRow)
 			throws AmbiguousComponentPathException, InvalidComponentPathException {
-		JTable tempTable = findComponentGuarded(aComponentPath, JTable.class, null);
-		TableModel tempModel = tempTable.getModel();
+		return internalGetTableRowContent(aComponentPath, aRow, false);
+	}
 
+	/**
+	 * Actually retrieves the table content or the rendered texts. Rows and columns are interpreted as seen by the user,
+	 * that is, sorting, filtering and reordered columns are taken into account.
+	 * 
+	 * @param aComponentPath
+	 *            the path to the component
+	 * @param aRow
+	 *            the row number (one-based!) or null for automatic row calculation in tabletests
+	 * @param aRenderedFlag
+	 *            whether to retrieve the rendered texts instead of the model values
+	 * @return the content
+	 */
+	protected Map<String, Object> internalGetTableRowContent(String aComponentPath, Integer aRow,
+			boolean aRenderedFlag) throws AmbiguousComponentPathException, InvalidComponentPathException {
+		boolean tempFirstTabletestRow = (aRow == null && nextRow == 0);
 		int tempRow = aRow != null ? aRow - 1 : (nextRow++);
 
-		Map<String, Object> tempResults = new HashMap<String, Object>();
-		if (tempRow >= 0 && tempRow <= tempTable.getRowCount()) {
-			for (int i = 0; i < tempTable.getColumnCount(); i++) {
-				Object tempValue = tempModel.getValueAt(tempRow, i);
+		TableSnapshot tempSnapshot = getTableSnapshot(aComponentPath, tempRow, aRow == null, aRenderedFlag,
+				tempFirstTabletestRow);
 
-				String tempName = simplifyColumnName(tempTable.getColumnName(i));
-				if (tempName != null) {
-					tempResults.put(tempName, tempValue);
-				}
-				tempResults.put(generateColumnName(i), tempValue);
-			}
+		Map<String, Object> tempResult;
+		if (tempRow >= 0 && tempRow < tempSnapshot.getTableRowCount()) {
+			tempResult = tempSnapshot.getRow(tempRow);
+		} else {
+			tempResult = new HashMap<String, Object>();
 		}
 
-		return tempResults;
+		// Single-row snapshots are of no further use, and in tabletests the snapshot is done once the last row has been
+		// read; releasing them right away detaches the listeners from the table
+		if (aRow != null || tempRow >= tempSnapshot.getTableRowCount() - 1) {
+			disposeTableSnapshot();
+		}
+
+		return tempResult;
+	}
+
+	/**
+	 * Returns a snapshot of the given table which covers the given row. The current snapshot is reused if it belongs
+	 * to the same table path, is of the requested kind, is still valid and covers the row; otherwise a new one is
+	 * taken on the event dispatching thread.
+	 * 
+	 * @param aComponentPath
+	 *            the path to the component
+	 * @param aRow
+	 *            the row (zero-based) that will be read
+	 * @param anAllRowsFlag
+	 *            whether a new snapshot should contain all rows (for tabletests) or only the requested one
+	 * @param aRenderedFlag
+	 *            whether the snapshot shall contain rendered texts instead of model values
+	 * @param aRefreshFlag
+	 *            whether to take a new snapshot in any case
+	 * @return the snapshot
+	 */
+	protected TableSnapshot getTableSnapshot(String aComponentPath, final int aRow, final boolean anAllRowsFlag,
+			final boolean aRenderedFlag, boolean aRefreshFlag) throws AmbiguousComponentPathException,
+			InvalidComponentPathException {
+		if (!aRefreshFlag && tableSnapshot != null && tableSnapshot.isValid() && tableSnapshot.covers(aRow)
+				&& tableSnapshot.isRendered() == aRenderedFlag
+				&& (aComponentPath == null ? tableSnapshotPath == null : aComponentPath.equals(tableSnapshotPath))) {
+			return tableSnapshot;
+		}
+
+		disposeTableSnapshot();
+
+		final JTable tempTable = findComponentGuarded(aComponentPath, JTable.class, null);
+		tableSnapshot = callOnEventQueue(new Callable<TableSnapshot>() {
+
+			@Override
+			public TableSnapshot call() {
+				return new TableSnapshot(tempTable, anAllRowsFlag ? 0 : aRow, anAllRowsFlag ? Integer.MAX_VALUE : 1,
+						aRenderedFlag);
+			}
+		});
+		tableSnapshotPath = aComponentPath;
+
+		return tableSnapshot;
+	}
+
+	/**
+	 * Disposes the current snapshot, if there is one. The listeners of the snapshot are removed on the event dispatching
+	 * thread, since the listener lists of the table and its models are not meant to be modified concurrently.
+	 */
+	protected void disposeTableSnapshot() {
+		if (tableSnapshot != null) {
+			final TableSnapshot tempSnapshot = tableSnapshot;
+			tableSnapshot = null;
+			tableSnapshotPath = null;
+			runOnEventQueue(new Runnable() {
+
+				@Override
+				public void run() {
+					tempSnapshot.dispose();
+				}
+			});
+		}
 	}
 
 	/**
@@ -145,10 +254,10 @@ public class SwingTableContentFixture extends AbstractSwingFixture
 	 * @param aComponentPath
 	 *            the path to the component
 	 * @param aRow
-	 *            the row number (one-based!)
+	 *            the row number (one-based!) or null for automatic row calculation in tabletests
 	 * @return the content
 	 */
-	protected Map<String, Object> internalGetTableRowText(String aComponentPath, int aRow)
+	protected Map<String, Object> internalGetTableRowText(String aComponentPath, Integer aRow)
 			throws AmbiguousComponentPathException, InvalidComponentPathException {
 		Map<String, Object> tempResults = internalGetTableRowContent(aComponentPath, aRow);
 		for (Entry<String, Object> tempEntry : tempResults.entrySet()) {
@@ -180,41 +289,46 @@ public class SwingTableContentFixture extends AbstractSwingFixture
 			return null;
 		}
 
-		// First: clean up all characters except alphanumerics. We'll replace them by spaces.
-		StringBuffer tempNameBuffer = new StringBuffer();
+		// First: combine all runs of allowed characters, enforcing camel-case. All other characters are dropped, but
+		// start a new token.
+		StringBuilder tempNameBuilder = new StringBuilder(aName.length() + 1);
+		boolean tempTokenStart = true;
 		for (int i = 0; i < aName.length(); i++) {
 			char tempChar = aName.charAt(i);
-			if (IDENTIFIER_CHARS.indexOf(tempChar) >= 0) {
-				tempNameBuffer.append(tempChar);
+			if (isIdentifierChar(tempChar)) {
+				tempNameBuilder.append(tempTokenStart ? Character.toUpperCase(tempChar) : tempChar);
+				tempTokenStart = false;
 			} else {
-				tempNameBuffer.append(" ");
+				tempTokenStart = true;
 			}
 		}
-		String tempName = tempNameBuffer.toString();
-
-		// Second: tokenize string, using spaces as splitter. Then combine tokens, enforcing camel-case.
-		tempNameBuffer = new StringBuffer();
-		for (String tempPart : aName.split(" ")) {
-			if (tempPart.length() > 0) {
-				tempNameBuffer.append(tempPart.substring(0, 1).toUpperCase() + tempPart.substring(1));
-			}
-		}
-		tempName = tempNameBuffer.toString();
 
 		// Filter out cases like column names with spaces/illegal chars only which have been filtered out now
-		if (tempName.length() == 0) {
+		if (tempNameBuilder.length() == 0) {
 			return null;
 		}
 
-		// Third: lowercase the first character
-		tempName = tempName.substring(0, 1).toLowerCase() + tempName.substring(1);
+		// Second: lowercase the first character
+		tempNameBuilder.setCharAt(0, Character.toLowerCase(tempNameBuilder.charAt(0)));
 
-		// Fourth: if the name starts with a number, put an underscore in front
-		if (Character.isDigit(tempName.charAt(0))) {
-			tempName = "_" + tempName;
+		// Third: if the name starts with a number, put an underscore in front
+		if (Character.isDigit(tempNameBuilder.charAt(0))) {
+			tempNameBuilder.insert(0, '_');
 		}
 
-		return tempName;
+		return tempNameBuilder.toString();
+	}
+
+	/**
+	 * Checks whether the given character is one of the {@link #IDENTIFIER_CHARS}.
+	 * 
+	 * @param aChar
+	 *            the character
+	 * @return true if the character is allowed in named result identifiers
+	 */
+	protected static boolean isIdentifierChar(char aChar) {
+		return (aChar >= 'a' && aChar <= 'z') || (aChar >= 'A' && aChar <= 'Z') || (aChar >= '0' && aChar <= '9')
+				|| aChar == '_';
 	}
 
 	/**
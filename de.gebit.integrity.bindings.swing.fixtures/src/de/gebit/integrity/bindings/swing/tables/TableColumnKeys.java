@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing.tables;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.swing.JTable;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.TableColumnModelEvent;
+import javax.swing.event.TableColumnModelListener;
+import javax.swing.table.TableColumnModel;
+
+/**
+ * The result keys for the columns of a table, as used in the row results of {@link SwingTableContentFixture}: every
+ * column is available by its simplified name (see {@link SwingTableContentFixture#simplifyColumnName(String)}) and by
+ * its generated name (see {@link SwingTableContentFixture#generateColumnName(int)}). Computing these names is
+ * comparatively expensive, so they are cached per {@link TableColumnModel} and shared by all rows and all fixture
+ * invocations. The keys are recomputed when columns are added, removed or moved, or when a column header has changed.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public final class TableColumnKeys {
+
+	/**
+	 * The cached keys, per column model. Only accessed on the event dispatching thread.
+	 */
+	private static final Map<TableColumnModel, TableColumnKeys> CACHE = new WeakHashMap<TableColumnModel, TableColumnKeys>();
+
+	/**
+	 * The column names these keys were computed from.
+	 */
+	private final String[] columnNames;
+
+	/**
+	 * The distinct keys.
+	 */
+	private final String[] keys;
+
+	/**
+	 * The column index for each key.
+	 */
+	private final int[] keyColumns;
+
+	/**
+	 * Maps each key to its index in {@link #keys}.
+	 */
+	private final Map<String, Integer> keyIndices;
+
+	/**
+	 * Whether the column layout has changed since the keys were computed.
+	 */
+	private boolean invalid;
+
+	/**
+	 * Creates an instance.
+	 * 
+	 * @param someColumnNames
+	 *            the column names
+	 */
+	private TableColumnKeys(String[] someColumnNames) {
+		columnNames = someColumnNames;
+
+		// Later keys override earlier ones with the same name, just like repeated puts into a map would
+		Map<String, Integer> tempKeyColumns = new LinkedHashMap<String, Integer>();
+		for (int i = 0; i < someColumnNames.length; i++) {
+			String tempName = SwingTableContentFixture.simplifyColumnName(someColumnNames[i]);
+			if (tempName != null) {
+				tempKeyColumns.put(tempName, i);
+			}
+			tempKeyColumns.put(SwingTableContentFixture.generateColumnName(i), i);
+		}
+
+		keys = new String[tempKeyColumns.size()];
+		keyColumns = new int[keys.length];
+		keyIndices = new HashMap<String, Integer>(keys.length * 2);
+		int tempIndex = 0;
+		for (Map.Entry<String, Integer> tempEntry : tempKeyColumns.entrySet()) {
+			keys[tempIndex] = tempEntry.getKey();
+			keyColumns[tempIndex] = tempEntry.getValue();
+			keyIndices.put(tempEntry.getKey(), tempIndex);
+			tempIndex++;
+		}
+	}
+
+	/**
+	 * Returns the keys for the columns of the given table, computing them if necessary. Must be called on the event
+	 * dispatching thread.
+	 * 
+	 * @param aTable
+	 *            the table
+	 * @return the keys
+	 */
+	public static TableColumnKeys forTable(JTable aTable) {
+		String[] tempColumnNames = new String[aTable.getColumnCount()];
+		for (int i = 0; i < tempColumnNames.length; i++) {
+			tempColumnNames[i] = aTable.getColumnName(i);
+		}
+
+		final TableColumnModel tempColumnModel = aTable.getColumnModel();
+		TableColumnKeys tempKeys = CACHE.get(tempColumnModel);
+		if (tempKeys == null || tempKeys.invalid || !Arrays.equals(tempKeys.columnNames, tempColumnNames)) {
+			if (tempKeys == null) {
+				tempColumnModel.addColumnModelListener(new TableColumnModelListener() {
+
+					@Override
+					public void columnAdded(TableColumnModelEvent anEvent) {
+						invalidate(tempColumnModel);
+					}
+
+					@Override
+					public void columnRemoved(TableColumnModelEvent anEvent) {
+						invalidate(tempColumnModel);
+					}
+
+					@Override
+					public void columnMoved(TableColumnModelEvent anEvent) {
+						if (anEvent.getFromIndex() != anEvent.getToIndex()) {
+							invalidate(tempColumnModel);
+						}
+					}
+
+					@Override
+					public void columnMarginChanged(ChangeEvent anEvent) {
+						// not relevant
+					}
+
+					@Override
+					public void columnSelectionChanged(ListSelectionEvent anEvent) {
+						// not relevant
+					}
+				});
+			}
+			tempKeys = new TableColumnKeys(tempColumnNames);
+			CACHE.put(tempColumnModel, tempKeys);
+		}
+
+		return tempKeys;
+	}
+
+	/**
+	 * Marks the keys cached for the given column model as invalid. The cache entry itself is kept, since it also
+	 * records that a listener has been added to the column model already.
+	 * 
+	 * @param aColumnModel
+	 *            the column model
+	 */
+	private static void invalidate(TableColumnModel aColumnModel) {
+		TableColumnKeys tempKeys = CACHE.get(aColumnModel);
+		if (tempKeys != null) {
+			tempKeys.invalid = true;
+		}
+	}
+
+	public int getColumnCount() {
+		return columnNames.length;
+	}
+
+	/**
+	 * Returns the name of a column.
+	 * 
+	 * @param aColumn
+	 *            the column (zero-based)
+	 * @return the name as provided by the table
+	 */
+	public String getColumnName(int aColumn) {
+		return columnNames[aColumn];
+	}
+
+	public int getKeyCount() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns a key.
+	 * 
+	 * @param anIndex
+	 *            the index of the key
+	 * @return the key
+	 */
+	public String getKey(int anIndex) {
+		return keys[anIndex];
+	}
+
+	/**
+	 * Returns the column a key refers to.
+	 * 
+	 * @param anIndex
+	 *            the index of the key
+	 * @return the column (zero-based)
+	 */
+	public int getKeyColumn(int anIndex) {
+		return keyColumns[anIndex];
+	}
+
+	/**
+	 * Returns the index of a key.
+	 * 
+	 * @param aKey
+	 *            the key
+	 * @return the index, or -1 if there is no such key
+	 */
+	public int indexOf(Object aKey) {
+		Integer tempIndex = keyIndices.get(aKey);
+		return tempIndex != null ? tempIndex : -1;
+	}
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing.tables;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map holding the values of one table row, keyed by the column keys. The keys (and the key lookup) are shared by all
+ * rows of a table via {@link TableColumnKeys}, so each row only needs a single value array instead of a hash map of
+ * its own. The set of keys is fixed; values can be replaced, but keys cannot be added or removed.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public class TableRowMap extends AbstractMap<String, Object> {
+
+	/**
+	 * The shared keys.
+	 */
+	private final TableColumnKeys keys;
+
+	/**
+	 * The values, in the order of the keys.
+	 */
+	private final Object[] values;
+
+	/**
+	 * Creates an instance.
+	 * 
+	 * @param someKeys
+	 *            the keys
+	 * @param someValues
+	 *            the values, in the order of the keys (the array is used directly, not copied)
+	 */
+	public TableRowMap(TableColumnKeys someKeys, Object[] someValues) {
+		keys = someKeys;
+		values = someValues;
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public boolean containsKey(Object aKey) {
+		return keys.indexOf(aKey) >= 0;
+	}
+
+	@Override
+	public Object get(Object aKey) {
+		int tempIndex = keys.indexOf(aKey);
+		return tempIndex >= 0 ? values[tempIndex] : null;
+	}
+
+	@Override
+	public Object put(String aKey, Object aValue) {
+		int tempIndex = keys.indexOf(aKey);
+		if (tempIndex < 0) {
+			throw new UnsupportedOperationException("Cannot add key '" + aKey + "' to a table row");
+		}
+		Object tempOldValue = values[tempIndex];
+		values[tempIndex] = aValue;
+		return tempOldValue;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		return new AbstractSet<Map.Entry<String, Object>>() {
+
+			@Override
+			public int size() {
+				return values.length;
+			}
+
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				return new Iterator<Map.Entry<String, Object>>() {
+
+					/**
+					 * The index of the next entry.
+					 */
+					private int nextIndex;
+
+					@Override
+					public boolean hasNext() {
+						return nextIndex < values.length;
+					}
+
+					@Override
+					public Map.Entry<String, Object> next() {
+						if (nextIndex >= values.length) {
+							throw new NoSuchElementException();
+						}
+						return new RowEntry(nextIndex++);
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * A map entry which writes through to the value array.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	private class RowEntry implements Map.Entry<String, Object> {
+
+		/**
+		 * The index of the entry.
+		 */
+		private final int index;
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param anIndex
+		 *            the index of the entry
+		 */
+		RowEntry(int anIndex) {
+			index = anIndex;
+		}
+
+		@Override
+		public String getKey() {
+			return keys.getKey(index);
+		}
+
+		@Override
+		public Object getValue() {
+			return values[index];
+		}
+
+		@Override
+		public Object setValue(Object aValue) {
+			Object tempOldValue = values[index];
+			values[index] = aValue;
+			return tempOldValue;
+		}
+
+		@Override
+		public boolean equals(Object anObject) {
+			if (!(anObject instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> tempOther = (Map.Entry<?, ?>) anObject;
+			return getKey().equals(tempOther.getKey())
+					&& (getValue() == null ? tempOther.getValue() == null : getValue().equals(tempOther.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			return getKey().hashCode() ^ (getValue() == null ? 0 : getValue().hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+}
@@ -0,0 +1,448 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing.tables;
+
+import java.awt.Component;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+import javax.swing.AbstractButton;
+import javax.swing.JLabel;
+import javax.swing.JTable;
+import javax.swing.RowSorter;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.RowSorterListener;
+import javax.swing.event.TableColumnModelEvent;
+import javax.swing.event.TableColumnModelListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
+import javax.swing.text.JTextComponent;
+
+/**
+ * A copy of (a range of rows of) the content of a {@link JTable}, taken on the event dispatching thread in one go. The
+ * values are stored column by column, so reading a row later on is a matter of plain array accesses and doesn't
+ * require the event dispatching thread.<br>
+ * <br>
+ * Rows and columns are addressed in view coordinates, that is, as the user sees the table: sorting and filtering by
+ * the {@link RowSorter} of the table as well as reordered columns are taken into account. The conversion to model
+ * coordinates is done once for all rows and columns while taking the snapshot.<br>
+ * <br>
+ * Instead of the model values, a snapshot can also contain the texts rendered by the cell renderers of the table, that
+ * is, the texts the user actually sees (formatted dates, numbers and the like). These are determined in the same pass
+ * on the event dispatching thread, reusing the renderer components of the table.<br>
+ * <br>
+ * The snapshot listens on the table and becomes invalid as soon as the model fires any {@link TableModelEvent}, the
+ * sorting or filtering changes, columns are added, removed or moved, or the model, row sorter or column model is
+ * replaced. Invalid snapshots must not be used anymore; take a new one instead.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public final class TableSnapshot {
+
+	/**
+	 * The table.
+	 */
+	private final JTable table;
+
+	/**
+	 * The table model at the time the snapshot was taken.
+	 */
+	private final TableModel model;
+
+	/**
+	 * The row sorter at the time the snapshot was taken (may be null).
+	 */
+	private final RowSorter<? extends TableModel> rowSorter;
+
+	/**
+	 * The column model at the time the snapshot was taken.
+	 */
+	private final TableColumnModel columnModel;
+
+	/**
+	 * The column keys of the table at the time the snapshot was taken.
+	 */
+	private final TableColumnKeys columnKeys;
+
+	/**
+	 * The values, indexed by column first and by row (relative to {@link #firstRow}) second.
+	 */
+	private final Object[][] columns;
+
+	/**
+	 * The first row contained in the snapshot.
+	 */
+	private final int firstRow;
+
+	/**
+	 * The number of rows contained in the snapshot.
+	 */
+	private final int rowCount;
+
+	/**
+	 * The number of (visible) rows of the table at the time the snapshot was taken.
+	 */
+	private final int tableRowCount;
+
+	/**
+	 * Whether the snapshot contains rendered texts instead of model values.
+	 */
+	private final boolean rendered;
+
+	/**
+	 * Whether the snapshot is still current.
+	 */
+	private volatile boolean valid = true;
+
+	/**
+	 * The listener which invalidates the snapshot when the table changes.
+	 */
+	private final SnapshotListener listener;
+
+	/**
+	 * Takes a snapshot of the given rows of a table. Must be called on the event dispatching thread.
+	 * 
+	 * @param aTable
+	 *            the table
+	 * @param aFirstRow
+	 *            the first row to copy (zero-based, in view coordinates)
+	 * @param aRowCount
+	 *            the number of rows to copy (is cut down to the rows actually present in the table)
+	 * @param aRenderedFlag
+	 *            whether to copy the rendered texts instead of the model values
+	 */
+	public TableSnapshot(JTable aTable, int aFirstRow, int aRowCount, boolean aRenderedFlag) {
+		table = aTable;
+		rendered = aRenderedFlag;
+		model = aTable.getModel();
+		rowSorter = aTable.getRowSorter();
+		columnModel = aTable.getColumnModel();
+		tableRowCount = aTable.getRowCount();
+		firstRow = Math.max(0, Math.min(aFirstRow, tableRowCount));
+		rowCount = Math.max(0, Math.min(aRowCount, tableRowCount - firstRow));
+
+		// Convert all view coordinates once, instead of asking the sorter for every single cell
+		int[] tempModelRows = new int[rowCount];
+		for (int j = 0; j < rowCount; j++) {
+			tempModelRows[j] = aTable.convertRowIndexToModel(firstRow + j);
+		}
+
+		columnKeys = TableColumnKeys.forTable(aTable);
+		columns = new Object[columnKeys.getColumnCount()][];
+		for (int i = 0; i < columns.length; i++) {
+			int tempModelColumn = aTable.convertColumnIndexToModel(i);
+			Object[] tempColumn = new Object[rowCount];
+			if (aRenderedFlag) {
+				for (int j = 0; j < rowCount; j++) {
+					tempColumn[j] = getRenderedText(aTable, firstRow + j, i, model.getValueAt(tempModelRows[j],
+							tempModelColumn));
+				}
+			} else {
+				for (int j = 0; j < rowCount; j++) {
+					tempColumn[j] = model.getValueAt(tempModelRows[j], tempModelColumn);
+				}
+			}
+			columns[i] = tempColumn;
+		}
+
+		listener = new SnapshotListener(this);
+		listener.attach();
+	}
+
+	/**
+	 * Takes a snapshot of the given rows of a table, containing the model values. Must be called on the event
+	 * dispatching thread.
+	 * 
+	 * @param aTable
+	 *            the table
+	 * @param aFirstRow
+	 *            the first row to copy (zero-based, in view coordinates)
+	 * @param aRowCount
+	 *            the number of rows to copy (is cut down to the rows actually present in the table)
+	 */
+	public TableSnapshot(JTable aTable, int aFirstRow, int aRowCount) {
+		this(aTable, aFirstRow, aRowCount, false);
+	}
+
+	/**
+	 * Takes a snapshot of all rows of a table, containing the model values. Must be called on the event dispatching
+	 * thread.
+	 * 
+	 * @param aTable
+	 *            the table
+	 */
+	public TableSnapshot(JTable aTable) {
+		this(aTable, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Determines the text shown for a cell by letting the table prepare the renderer component for the cell. Texts are
+	 * taken from {@link JLabel} and {@link JTextComponent} renderers; for button renderers (like the check box used for
+	 * boolean values), the selection state is returned. For other renderers, the string representation of the value is
+	 * used.
+	 * 
+	 * @param aTable
+	 *            the table
+	 * @param aRow
+	 *            the row (zero-based, in view coordinates)
+	 * @param aColumn
+	 *            the column (zero-based, in view coordinates)
+	 * @param aValue
+	 *            the model value of the cell
+	 * @return the text (may be null)
+	 */
+	protected static String getRenderedText(JTable aTable, int aRow, int aColumn, Object aValue) {
+		Component tempRenderer = aTable.prepareRenderer(aTable.getCellRenderer(aRow, aColumn), aRow, aColumn);
+		if (tempRenderer instanceof JLabel) {
+			return ((JLabel) tempRenderer).getText();
+		} else if (tempRenderer instanceof JTextComponent) {
+			return ((JTextComponent) tempRenderer).getText();
+		} else if (tempRenderer instanceof AbstractButton) {
+			return Boolean.toString(((AbstractButton) tempRenderer).isSelected());
+		} else {
+			return aValue != null ? aValue.toString() : null;
+		}
+	}
+
+	/**
+	 * Whether the snapshot contains rendered texts instead of model values.
+	 * 
+	 * @return true if the values are rendered texts
+	 */
+	public boolean isRendered() {
+		return rendered;
+	}
+
+	/**
+	 * Whether the snapshot is still current.
+	 * 
+	 * @return true if the table model has not changed since the snapshot was taken
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * Invalidates the snapshot and detaches it from the table.
+	 */
+	public void dispose() {
+		if (valid) {
+			valid = false;
+			listener.detach();
+		}
+	}
+
+	/**
+	 * Whether the snapshot can answer queries for the given row. This is the case if the row is contained in the
+	 * snapshot or if it didn't exist in the table at all.
+	 * 
+	 * @param aRow
+	 *            the row (zero-based, in view coordinates)
+	 * @return true if the row is covered
+	 */
+	public boolean covers(int aRow) {
+		return aRow < 0 || aRow >= tableRowCount || (aRow >= firstRow && aRow < firstRow + rowCount);
+	}
+
+	/**
+	 * Whether the given row is contained in the snapshot.
+	 * 
+	 * @param aRow
+	 *            the row (zero-based, in view coordinates)
+	 * @return true if the row is contained
+	 */
+	public boolean containsRow(int aRow) {
+		return aRow >= firstRow && aRow < firstRow + rowCount;
+	}
+
+	public int getTableRowCount() {
+		return tableRowCount;
+	}
+
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	public TableColumnKeys getColumnKeys() {
+		return columnKeys;
+	}
+
+	/**
+	 * Returns the values of a row, keyed by the column keys. The row must be contained in the snapshot (see
+	 * {@link #containsRow(int)}).
+	 * 
+	 * @param aRow
+	 *            the row (zero-based, in view coordinates)
+	 * @return a new map with the values
+	 */
+	public Map<String, Object> getRow(int aRow) {
+		Object[] tempValues = new Object[columnKeys.getKeyCount()];
+		for (int i = 0; i < tempValues.length; i++) {
+			tempValues[i] = columns[columnKeys.getKeyColumn(i)][aRow - firstRow];
+		}
+		return new TableRowMap(columnKeys, tempValues);
+	}
+
+	/**
+	 * Returns a value. The row must be contained in the snapshot (see {@link #containsRow(int)}).
+	 * 
+	 * @param aRow
+	 *            the row (zero-based, in view coordinates)
+	 * @param aColumn
+	 *            the column (zero-based, in view coordinates)
+	 * @return the value
+	 */
+	public Object getValueAt(int aRow, int aColumn) {
+		return columns[aColumn][aRow - firstRow];
+	}
+
+	/**
+	 * Invalidates the snapshot on any model change, if the sorting or filtering changes, if columns are added, removed
+	 * or moved, and if the model, the row sorter or the column model of the table is replaced.<br>
+	 * <br>
+	 * The snapshot is referenced weakly only: a fixture may be discarded without disposing its snapshot (for example
+	 * after a tabletest which didn't check all rows of the table), and the copy of the table content must not stay
+	 * reachable from the table in that case. The listener detaches itself on the next event after the snapshot has
+	 * been garbage collected.
+	 * 
+	 * 
+	 * @author Rene Schneider - initial API and implementation
+	 * 
+	 */
+	private static final class SnapshotListener implements TableModelListener, RowSorterListener,
+			TableColumnModelListener, PropertyChangeListener {
+
+		/**
+		 * The snapshot.
+		 */
+		private final WeakReference<TableSnapshot> snapshot;
+
+		/**
+		 * The table.
+		 */
+		private final JTable table;
+
+		/**
+		 * The table model at the time the snapshot was taken.
+		 */
+		private final TableModel model;
+
+		/**
+		 * The row sorter at the time the snapshot was taken (may be null).
+		 */
+		private final RowSorter<? extends TableModel> rowSorter;
+
+		/**
+		 * The column model at the time the snapshot was taken.
+		 */
+		private final TableColumnModel columnModel;
+
+		/**
+		 * Creates an instance.
+		 * 
+		 * @param aSnapshot
+		 *            the snapshot to invalidate
+		 */
+		SnapshotListener(TableSnapshot aSnapshot) {
+			snapshot = new WeakReference<TableSnapshot>(aSnapshot);
+			table = aSnapshot.table;
+			model = aSnapshot.model;
+			rowSorter = aSnapshot.rowSorter;
+			columnModel = aSnapshot.columnModel;
+		}
+
+		/**
+		 * Registers the listener with the table and its models.
+		 */
+		public void attach() {
+			model.addTableModelListener(this);
+			if (rowSorter != null) {
+				rowSorter.addRowSorterListener(this);
+			}
+			columnModel.addColumnModelListener(this);
+			table.addPropertyChangeListener(this);
+		}
+
+		/**
+		 * Removes the listener from the table and its models.
+		 */
+		public void detach() {
+			model.removeTableModelListener(this);
+			if (rowSorter != null) {
+				rowSorter.removeRowSorterListener(this);
+			}
+			columnModel.removeColumnModelListener(this);
+			table.removePropertyChangeListener(this);
+		}
+
+		/**
+		 * Invalidates the snapshot, or just detaches the listener if the snapshot is gone already.
+		 */
+		private void invalidate() {
+			TableSnapshot tempSnapshot = snapshot.get();
+			if (tempSnapshot != null) {
+				tempSnapshot.dispose();
+			} else {
+				detach();
+			}
+		}
+
+		@Override
+		public void tableChanged(TableModelEvent anEvent) {
+			invalidate();
+		}
+
+		@Override
+		public void sorterChanged(RowSorterEvent anEvent) {
+			invalidate();
+		}
+
+		@Override
+		public void columnAdded(TableColumnModelEvent anEvent) {
+			invalidate();
+		}
+
+		@Override
+		public void columnRemoved(TableColumnModelEvent anEvent) {
+			invalidate();
+		}
+
+		@Override
+		public void columnMoved(TableColumnModelEvent anEvent) {
+			if (anEvent.getFromIndex() != anEvent.getToIndex()) {
+				invalidate();
+			}
+		}
+
+		@Override
+		public void columnMarginChanged(ChangeEvent anEvent) {
+			// not relevant
+		}
+
+		@Override
+		public void columnSelectionChanged(ListSelectionEvent anEvent) {
+			// not relevant
+		}
+
+		@Override
+		public void propertyChange(PropertyChangeEvent anEvent) {
+			String tempProperty = anEvent.getPropertyName();
+			if ("model".equals(tempProperty) || "rowSorter".equals(tempProperty)
+					|| "columnModel".equals(tempProperty)) {
+				invalidate();
+			}
+		}
+	}
+}
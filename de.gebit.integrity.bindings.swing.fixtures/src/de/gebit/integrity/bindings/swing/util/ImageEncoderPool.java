@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Rene Schneider, GEBIT Solutions GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package de.gebit.integrity.bindings.swing.util;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * A small, JVM-wide pool of daemon threads for encoding images (and similar CPU-bound work on images), so many images
+ * can be encoded in parallel on all cores instead of one after another on the calling thread. The work queue is
+ * bounded; if it is full, the submitting thread does the work itself, which throttles producers that are faster than
+ * the pool.<br>
+ * <br>
+ * PNG images are written with a tuned compression level (see {@link #COMPRESSION_PARAMETER}), if the ImageIO PNG
+ * writer of the running JVM supports setting one.
+ * 
+ * @author Rene Schneider - initial API and implementation
+ * 
+ */
+public final class ImageEncoderPool {
+
+	/**
+	 * The system property which can be used to define the PNG compression quality (0.0 = smallest output, slowest; 1.0
+	 * = largest output, fastest).
+	 */
+	public static final String COMPRESSION_PARAMETER = "de.gebit.integrity.bindings.swing.pngCompressionQuality";
+
+	/**
+	 * The default PNG compression quality. Favors speed, since the images are usually small and short-lived.
+	 */
+	public static final float DEFAULT_COMPRESSION_QUALITY = 0.75f;
+
+	/**
+	 * The maximum number of waiting tasks.
+	 */
+	private static final int QUEUE_SIZE = 64;
+
+	/**
+	 * The singleton instance.
+	 */
+	private static ImageEncoderPool instance;
+
+	/**
+	 * The executor.
+	 */
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * The PNG compression quality.
+	 */
+	private final float compressionQuality;
+
+	/**
+	 * Private constructor; use {@link #getInstance()}.
+	 */
+	private ImageEncoderPool() {
+		int tempThreadCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+		final AtomicInteger tempThreadNumber = new AtomicInteger();
+		executor = new ThreadPoolExecutor(tempThreadCount, tempThreadCount, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new ThreadFactory() {
+
+					@Override
+					public Thread newThread(Runnable aRunnable) {
+						Thread tempThread = new Thread(aRunnable, "Image Encoder " + tempThreadNumber.incrementAndGet());
+						tempThread.setDaemon(true);
+						return tempThread;
+					}
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+
+		float tempQuality = DEFAULT_COMPRESSION_QUALITY;
+		String tempQualityString = System.getProperty(COMPRESSION_PARAMETER);
+		if (tempQualityString != null) {
+			try {
+				tempQuality = Math.max(0.0f, Math.min(1.0f, Float.parseFloat(tempQualityString)));
+			} catch (NumberFormatException exc) {
+				System.err.println("Invalid PNG compression quality: " + tempQualityString);
+			}
+		}
+		compressionQuality = tempQuality;
+	}
+
+	/**
+	 * Returns the pool instance.
+	 * 
+	 * @return the pool
+	 */
+	public static synchronized ImageEncoderPool getInstance() {
+		if (instance == null) {
+			instance = new ImageEncoderPool();
+		}
+		return instance;
+	}
+
+	/**
+	 * Submits an image for PNG encoding.
+	 * 
+	 * @param anImage
+	 *            the image (must not be modified until encoding has finished)
+	 * @return a future providing the encoded PNG data
+	 */
+	public Future<byte[]> encodePNG(final BufferedImage anImage) {
+		return submit(new Callable<byte[]>() {
+
+			@Override
+			public byte[] call() throws IOException {
+				return writePNG(anImage);
+			}
+		});
+	}
+
+	/**
+	 * Submits an arbitrary task to the pool.
+	 * 
+	 * @param aTask
+	 *            the task
+	 * @return a future providing the result of the task
+	 */
+	public <T> Future<T> submit(Callable<T> aTask) {
+		return executor.submit(aTask);
+	}
+
+	/**
+	 * Encodes an image as PNG on the calling thread, using the configured compression quality.
+	 * 
+	 * @param anImage
+	 *            the image
+	 * @return the PNG data
+	 * @throws IOException
+	 */
+	public byte[] writePNG(BufferedImage anImage) throws IOException {
+		ByteArrayOutputStream tempOutBuffer = new ByteArrayOutputStream();
+
+		Iterator<ImageWriter> tempWriters = ImageIO.getImageWritersByFormatName("png");
+		if (!tempWriters.hasNext()) {
+			ImageIO.write(anImage, "PNG", tempOutBuffer);
+			return tempOutBuffer.toByteArray();
+		}
+
+		ImageWriter tempWriter = tempWriters.next();
+		ImageOutputStream tempOutputStream = ImageIO.createImageOutputStream(tempOutBuffer);
+		try {
+			tempWriter.setOutput(tempOutputStream);
+			ImageWriteParam tempParam = tempWriter.getDefaultWriteParam();
+			if (tempParam.canWriteCompressed()) {
+				tempParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				if (tempParam.getCompressionType() == null && tempParam.getCompressionTypes().length > 0) {
+					tempParam.setCompressionType(tempParam.getCompressionTypes()[0]);
+				}
+				tempParam.setCompressionQuality(compressionQuality);
+			}
+			tempWriter.write(null, new IIOImage(anImage, null, null), tempParam);
+		} finally {
+			tempWriter.dispose();
+			tempOutputStream.close();
+		}
+
+		return tempOutBuffer.toByteArray();
+	}
+}